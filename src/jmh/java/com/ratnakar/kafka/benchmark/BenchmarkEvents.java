@@ -0,0 +1,24 @@
+package com.ratnakar.kafka.benchmark;
+
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/*
+Representative payload shared by the benchmarks: same shape as the body of POST /products
+(see ImportantNotes/ApiRequestResponseDetails).
+*/
+final class BenchmarkEvents {
+    static final String TOPIC = "product-created-events-topic";
+    static final String TITLE = "iPhone 15 Pro Max";
+    static final BigDecimal PRICE = new BigDecimal("1299.99");
+    static final Integer QUANTITY = 25;
+
+    private BenchmarkEvents() {
+    }
+
+    static ProductCreatedEvent productCreatedEvent() {
+        return new ProductCreatedEvent(UUID.randomUUID().toString(), TITLE, PRICE, QUANTITY);
+    }
+}
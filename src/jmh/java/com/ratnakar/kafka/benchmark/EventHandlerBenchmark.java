@@ -0,0 +1,125 @@
+package com.ratnakar.kafka.benchmark;
+
+import com.ratnakar.kafka.client.DownstreamCircuitBreaker;
+import com.ratnakar.kafka.client.DownstreamServiceClient;
+import com.ratnakar.kafka.handler.EventHandler;
+import com.ratnakar.kafka.handler.ProductCreatedEventProcessor;
+import com.ratnakar.kafka.idempotency.IdempotencyStore;
+import com.ratnakar.kafka.idempotency.ProcessedEventDeduplicator;
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+Body of EventHandler.handle -> ProductCreatedEventProcessor.process with the slow edges stubbed out:
+- the IdempotencyStore returns immediately (no database), ids starting with "duplicate-" are reported as processed
+- DownstreamServiceClient.notifyProductCreated does nothing (no HTTP)
+What is left is the in-process cost per consumed record: idempotency check (ProcessedEventDeduplicator),
+entity creation, logging calls and the cache bookkeeping.
+dedup=disabled goes to the store for every messageId, dedup=cache is the default ProcessedMessageCache setup.
+Console logging is turned off in src/jmh/resources/logback.xml, otherwise this measures the terminal.
+*/
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventHandlerBenchmark {
+    private static final String DUPLICATE_PREFIX = "duplicate-";
+
+    @Param({"disabled", "cache"})
+    public String dedup;
+
+    private EventHandler eventHandler;
+    private ProductCreatedEvent productCreatedEvent;
+    private long messageSequence;
+
+    @Setup
+    public void setUp() {
+        ProcessedEventDeduplicator processedEventDeduplicator = new ProcessedEventDeduplicator(stubIdempotencyStore(), new SimpleMeterRegistry());
+        setField(processedEventDeduplicator, "enabled", "cache".equals(dedup));
+        setField(processedEventDeduplicator, "cacheMaxSize", 100_000);
+        setField(processedEventDeduplicator, "cacheTtl", Duration.ofMinutes(30));
+        Method init = ReflectionUtils.findMethod(ProcessedEventDeduplicator.class, "init");
+        ReflectionUtils.makeAccessible(init);
+        ReflectionUtils.invokeMethod(init, processedEventDeduplicator);
+
+        DownstreamServiceClient downstreamServiceClient = new DownstreamServiceClient(null, new DownstreamCircuitBreaker(), new SimpleMeterRegistry()) {
+            @Override
+            public void notifyProductCreated(ProductCreatedEvent productCreatedEvent) {
+            }
+        };
+        eventHandler = new EventHandler(new ProductCreatedEventProcessor(
+                downstreamServiceClient, stubIdempotencyStore(), processedEventDeduplicator));
+        productCreatedEvent = BenchmarkEvents.productCreatedEvent();
+    }
+
+    @Benchmark
+    public void handleNewEvent() {
+        eventHandler.handle(productCreatedEvent, "message-" + messageSequence++, productCreatedEvent.getProductId());
+    }
+
+    @Benchmark
+    public void handleDuplicateEvent() {
+        eventHandler.handle(productCreatedEvent, DUPLICATE_PREFIX + (messageSequence++ & 1023), productCreatedEvent.getProductId());
+    }
+
+    private static IdempotencyStore stubIdempotencyStore() {
+        return new IdempotencyStore() {
+            @Override
+            public boolean contains(String messageId) {
+                return messageId.startsWith(DUPLICATE_PREFIX);
+            }
+
+            @Override
+            public Set<String> findExisting(Collection<String> messageIds) {
+                return messageIds.stream().filter(this::contains).collect(Collectors.toSet());
+            }
+
+            @Override
+            public boolean add(String messageId, String productId) {
+                return true;
+            }
+
+            @Override
+            public Set<String> addAll(Map<String, String> productIdsByMessageId) {
+                return Set.of();
+            }
+
+            @Override
+            public Optional<List<String>> findRecentMessageIds(int limit) {
+                return Optional.of(List.of());
+            }
+        };
+    }
+
+    // The deduplicator is configured through @Value fields, which are not injected outside the Spring context
+    private static void setField(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+}
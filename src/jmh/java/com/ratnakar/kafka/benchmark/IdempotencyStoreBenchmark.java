@@ -0,0 +1,178 @@
+package com.ratnakar.kafka.benchmark;
+
+import com.ratnakar.kafka.idempotency.IdempotencyStore;
+import com.ratnakar.kafka.idempotency.JpaIdempotencyStore;
+import com.ratnakar.kafka.idempotency.RocksDbIdempotencyStore;
+import com.ratnakar.kafka.model.ProcessEventEntity;
+import com.ratnakar.kafka.repository.ProcessEventBatchRepository;
+import com.ratnakar.kafka.repository.ProcessEventRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/*
+Both IdempotencyStore implementations through the same interface, after preloading `preloaded` messageIds:
+- lookupHit / lookupMiss : contains() of a stored / never stored messageId (the dedup check of every consumed record)
+- add                    : one new messageId per call (record listener)
+- addAll                 : one poll of 500 new messageIds per call (batch listener), score per messageId
+store=jpa is the JpaIdempotencyStore bean of a minimal Spring Data JPA context on in-memory H2 (repository lookups,
+jdbc write strategy), store=rocksdb a RocksDbIdempotencyStore in a temporary directory.
+Compare the scores at preloaded=100000 and 1000000: the B-tree lookups get slower with the table size, the LSM tree
+lookups should stay flat. H2 in memory has no network round trip, against a real database the gap is larger.
+Run: gradle jmh -PjmhIncludes=IdempotencyStoreBenchmark
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdempotencyStoreBenchmark {
+    private static final int IDS_PER_POLL = 500;
+    private static final String JDBC_URL = "jdbc:h2:mem:idempotency-store-benchmark;DB_CLOSE_DELAY=-1";
+
+    @Param({"jpa", "rocksdb"})
+    public String store;
+
+    @Param({"100000", "1000000"})
+    public int preloaded;
+
+    private IdempotencyStore idempotencyStore;
+    private ConfigurableApplicationContext jpaContext;
+    private RocksDbIdempotencyStore rocksDbIdempotencyStore;
+    private Path rocksDbPath;
+    private long lookupSequence;
+    private long insertSequence;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if ("rocksdb".equals(store)) {
+            rocksDbPath = Files.createTempDirectory("idempotency-store-benchmark");
+            rocksDbIdempotencyStore = new RocksDbIdempotencyStore(rocksDbPath.toString(), Duration.ofDays(7), DataSize.ofMegabytes(64));
+            rocksDbIdempotencyStore.open();
+            idempotencyStore = rocksDbIdempotencyStore;
+        } else {
+            idempotencyStore = jpaStore();
+        }
+        Map<String, String> poll = new LinkedHashMap<>();
+        for (int i = 0; i < preloaded; i++) {
+            poll.put("preloaded-" + i, "product");
+            if (poll.size() == 10_000) {
+                idempotencyStore.addAll(poll);
+                poll.clear();
+            }
+        }
+        idempotencyStore.addAll(poll);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (rocksDbIdempotencyStore != null) {
+            rocksDbIdempotencyStore.close();
+            FileSystemUtils.deleteRecursively(rocksDbPath);
+        }
+        if (jpaContext != null) {
+            // create-drop: Hibernate drops the processed_events table and its sequence
+            jpaContext.close();
+        }
+    }
+
+    @Benchmark
+    public boolean lookupHit() {
+        return idempotencyStore.contains("preloaded-" + (lookupSequence++ % preloaded));
+    }
+
+    @Benchmark
+    public boolean lookupMiss() {
+        return idempotencyStore.contains("missing-" + lookupSequence++);
+    }
+
+    @Benchmark
+    public boolean add() {
+        return idempotencyStore.add("new-" + insertSequence++, "product");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IDS_PER_POLL)
+    public Set<String> addAll() {
+        Map<String, String> poll = new LinkedHashMap<>();
+        for (int i = 0; i < IDS_PER_POLL; i++) {
+            poll.put("new-" + insertSequence++, "product");
+        }
+        return idempotencyStore.addAll(poll);
+    }
+
+    // Starts the JPA store context below, the benchmark calls the real JpaIdempotencyStore bean
+    private IdempotencyStore jpaStore() {
+        jpaContext = new SpringApplicationBuilder(JpaStoreConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                // No application.properties: only the settings below, the ones the processed_events table depends on
+                .properties(
+                        "spring.config.name=idempotency-store-benchmark",
+                        "spring.datasource.url=" + JDBC_URL,
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.open-in-view=false",
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+                        "spring.jpa.properties.hibernate.order_inserts=true",
+                        "spring.jpa.properties.hibernate.id.optimizer.pooled.preferred=pooled",
+                        "app.idempotency.store=jpa",
+                        "app.idempotency.write-strategy=jdbc",
+                        "logging.level.root=WARN")
+                .run();
+        return jpaContext.getBean(JpaIdempotencyStore.class);
+    }
+
+    /*
+    Minimal Spring Data JPA context on H2: DataSource, Hibernate with the processed_events schema generated from
+    ProcessEventEntity, the ProcessEventRepository proxy and the two beans of the jpa store. No Kafka, no web server.
+    */
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, JdbcTemplateAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class, TransactionAutoConfiguration.class})
+    @EntityScan(basePackageClasses = ProcessEventEntity.class)
+    @EnableJpaRepositories(basePackageClasses = ProcessEventRepository.class,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ProcessEventRepository.class))
+    @Import({JpaIdempotencyStore.class, ProcessEventBatchRepository.class})
+    static class JpaStoreConfiguration {
+    }
+}
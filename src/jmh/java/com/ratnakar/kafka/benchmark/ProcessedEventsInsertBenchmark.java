@@ -0,0 +1,97 @@
+package com.ratnakar.kafka.benchmark;
+
+import com.ratnakar.kafka.model.ProcessEventEntity;
+import com.ratnakar.kafka.repository.ProcessEventBatchRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+Inserts per second into the processed_events idempotency table on in-memory H2:
+- singleInserts : one insert and one transaction per message (record listener)
+- batchInsert   : one JDBC batch and one transaction per poll (BatchEventHandler with app.idempotency.write-strategy=jdbc)
+Both go through ProcessEventBatchRepository so the id allocation (one sequence call per 50 ids) is the same,
+scores are per inserted row. H2 in memory has no network round trip, against a real database the gap is larger.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessedEventsInsertBenchmark {
+    private static final int ROWS_PER_POLL = 500;
+    private static final String JDBC_URL = "jdbc:h2:mem:processed-events-benchmark;DB_CLOSE_DELAY=-1";
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private ProcessEventBatchRepository processEventBatchRepository;
+    private long messageSequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource(JDBC_URL, "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create sequence " + ProcessEventEntity.ID_SEQUENCE_NAME
+                + " start with 1 increment by " + ProcessEventEntity.ID_ALLOCATION_SIZE);
+        jdbcTemplate.execute("create table processed_events (id bigint primary key, "
+                + "message_id varchar(255) not null unique, product_id varchar(255) not null, "
+                + "processed_at timestamp(6) with time zone not null)");
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        processEventBatchRepository = new ProcessEventBatchRepository(jdbcTemplate, dataSource, JDBC_URL);
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() {
+        // Keeps the unique index the same size in every iteration
+        jdbcTemplate.execute("truncate table processed_events");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("drop all objects");
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_POLL)
+    public void singleInserts() {
+        for (ProcessEventEntity processEventEntity : nextPoll()) {
+            transactionTemplate.executeWithoutResult(status -> processEventBatchRepository.saveAll(List.of(processEventEntity)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_POLL)
+    public void batchInsert() {
+        List<ProcessEventEntity> poll = nextPoll();
+        transactionTemplate.executeWithoutResult(status -> processEventBatchRepository.saveAll(poll));
+    }
+
+    private List<ProcessEventEntity> nextPoll() {
+        List<ProcessEventEntity> poll = new ArrayList<>(ROWS_PER_POLL);
+        for (int i = 0; i < ROWS_PER_POLL; i++) {
+            poll.add(new ProcessEventEntity("message-" + messageSequence++, "product"));
+        }
+        return poll;
+    }
+}
@@ -0,0 +1,39 @@
+package com.ratnakar.kafka.benchmark;
+
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import com.ratnakar.kafka.service.ProductEventRecords;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/*
+Record building done by ProductServiceImpl for every created product, before KafkaTemplate.send():
+new productId, ProductCreatedEvent, ProducerRecord with key and the messageId header.
+Two random UUIDs per record, so SecureRandom shows up here as well.
+*/
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProducerRecordBenchmark {
+
+    @Benchmark
+    public ProducerRecord<String, ProductCreatedEvent> buildProductCreatedRecord() {
+        ProductCreatedEvent productCreatedEvent = new ProductCreatedEvent(
+                UUID.randomUUID().toString(),
+                BenchmarkEvents.TITLE,
+                BenchmarkEvents.PRICE,
+                BenchmarkEvents.QUANTITY
+        );
+        return ProductEventRecords.productCreatedRecord(productCreatedEvent, UUID.randomUUID().toString());
+    }
+}
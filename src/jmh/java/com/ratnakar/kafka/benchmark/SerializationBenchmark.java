@@ -0,0 +1,101 @@
+package com.ratnakar.kafka.benchmark;
+
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import com.ratnakar.kafka.serialization.ProductCreatedEventDeserializer;
+import com.ratnakar.kafka.serialization.ProductCreatedEventSerializer;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+Value serialization on the producer and decoding on the consumer, for both app.kafka.value-format values:
+- json   : JsonSerializer as configured by ProducerFactoryRegistry (type info headers on),
+           ErrorHandlingDeserializer + JsonDeserializer as configured in KafkaConsumerConfig.consumerFactory
+- binary : ProductCreatedEventSerializer, ErrorHandlingDeserializer + ProductCreatedEventDeserializer
+The wire size per record (value + headers written by the serializer) is printed once per fork,
+ns/op and the gc profiler's alloc.rate.norm give the CPU and allocation cost per record.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"json", "binary"})
+    public String valueFormat;
+
+    private Serializer<ProductCreatedEvent> serializer;
+    private Deserializer<Object> deserializer;
+    private ProductCreatedEvent productCreatedEvent;
+    private byte[] serializedValue;
+    private Headers serializedHeaders;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boolean binary = "binary".equals(valueFormat);
+        serializer = binary ? new ProductCreatedEventSerializer() : new JsonSerializer<>();
+        serializer.configure(Map.of(), false);
+
+        deserializer = new ErrorHandlingDeserializer<>();
+        deserializer.configure(Map.of(
+                ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS,
+                binary ? ProductCreatedEventDeserializer.class : JsonDeserializer.class,
+                JsonDeserializer.TRUSTED_PACKAGES, "*"
+        ), false);
+
+        productCreatedEvent = BenchmarkEvents.productCreatedEvent();
+        serializedHeaders = new RecordHeaders();
+        serializedValue = serializer.serialize(BenchmarkEvents.TOPIC, serializedHeaders, productCreatedEvent);
+
+        int headerBytes = 0;
+        for (Header header : serializedHeaders) {
+            headerBytes += header.key().length() + header.value().length;
+        }
+        System.out.printf("%n%s: %d value bytes + %d header bytes per record%n", valueFormat, serializedValue.length, headerBytes);
+
+        if (!(deserialize() instanceof ProductCreatedEvent)) {
+            throw new IllegalStateException(valueFormat + " value does not decode to a ProductCreatedEvent");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        serializer.close();
+        deserializer.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        // A producer record starts with empty headers, the JSON serializer adds __TypeId__ every time
+        return serializer.serialize(BenchmarkEvents.TOPIC, new RecordHeaders(), productCreatedEvent);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        // Every consumed record comes with its own headers, and JsonDeserializer removes __TypeId__ after reading it
+        return deserializer.deserialize(BenchmarkEvents.TOPIC, new RecordHeaders(serializedHeaders.toArray()), serializedValue);
+    }
+}
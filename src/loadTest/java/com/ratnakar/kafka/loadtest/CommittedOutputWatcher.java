@@ -0,0 +1,72 @@
+package com.ratnakar.kafka.loadtest;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/*
+Commit timestamps for app.consumer.listener-mode=eos, where ExactlyOnceEventHandler neither calls the IdempotencyStore
+nor uses a database transaction: a read_committed consumer on app.consumer.eos.output-topic sees a derived event only
+once the Kafka transaction holding it (and the consumed offsets) is committed, so that is the commit time of its
+productId (the record key). Reads all partitions without a consumer group, starting at their current end.
+*/
+final class CommittedOutputWatcher implements AutoCloseable {
+    private final KafkaConsumer<String, byte[]> consumer;
+    private final PipelineTimestamps timestamps;
+    private final Thread pollThread;
+
+    CommittedOutputWatcher(String bootstrapServers, String outputTopic, int partitions, PipelineTimestamps timestamps) {
+        this.consumer = new KafkaConsumer<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed",
+                ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false
+        ), new StringDeserializer(), new ByteArrayDeserializer());
+        this.timestamps = timestamps;
+        List<TopicPartition> topicPartitions = IntStream.range(0, partitions)
+                .mapToObj(partition -> new TopicPartition(outputTopic, partition))
+                .toList();
+        consumer.assign(topicPartitions);
+        consumer.seekToEnd(topicPartitions);
+        // seekToEnd is lazy, resolve the positions now so that records produced before start() are not skipped
+        topicPartitions.forEach(consumer::position);
+        this.pollThread = new Thread(this::poll, "eos-output-watcher");
+        this.pollThread.setDaemon(true);
+    }
+
+    void start() {
+        pollThread.start();
+    }
+
+    private void poll() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofMillis(100))) {
+                    timestamps.recordCommit(List.of(record.key()));
+                }
+            }
+        } catch (WakeupException e) {
+            // close() was called
+        } finally {
+            consumer.close();
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (!pollThread.isAlive()) {
+            consumer.close();
+            return;
+        }
+        consumer.wakeup();
+        pollThread.join(Duration.ofSeconds(10).toMillis());
+    }
+}
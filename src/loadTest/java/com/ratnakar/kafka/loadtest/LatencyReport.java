@@ -0,0 +1,184 @@
+package com.ratnakar.kafka.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+Latency histograms of one run, all measured from the intended send time of the request:
+- http   : HTTP response of POST /products/create
+- ack    : broker acknowledged the ProductCreatedEvent (ProducerListener.onSuccess)
+- commit : the consumer committed the ProcessEventEntity, i.e. produce-to-consume end to end
+           (listener-mode=eos: the forwarded event became visible on the output topic to read_committed consumers)
+plus ack-to-commit (time spent between the broker and the committed consumer transaction).
+
+Every run writes <report-dir>/<timestamp>-<git revision>/ with report.txt, summary.json and one .hgrm percentile
+distribution per histogram (plot them with HdrHistogram's HistogramLogAnalyzer / hdrhistogram.github.io), and appends
+one line to <report-dir>/history.csv so runs can be compared across commits.
+*/
+final class LatencyReport {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final LoadTestOptions options;
+    private final LoadGenerator.Result result;
+    private final String revision;
+    private final Map<String, Histogram> histograms = new LinkedHashMap<>();
+    private long missingAcks;
+    private long missingCommits;
+
+    private LatencyReport(LoadTestOptions options, LoadGenerator.Result result, String revision) {
+        this.options = options;
+        this.result = result;
+        this.revision = revision;
+    }
+
+    static LatencyReport create(LoadTestOptions options, LoadGenerator.Result result, PipelineTimestamps timestamps) {
+        LatencyReport report = new LatencyReport(options, result, gitRevision());
+        Histogram http = report.histogram("http");
+        Histogram ack = report.histogram("ack");
+        Histogram commit = report.histogram("commit");
+        Histogram ackToCommit = report.histogram("ack-to-commit");
+        result.requests.forEach((productId, times) -> {
+            long intendedStart = times[0];
+            record(http, times[1] - intendedStart);
+            Long acked = timestamps.getAckNanos().get(productId);
+            Long committed = timestamps.getCommitNanos().get(productId);
+            if (acked == null) {
+                report.missingAcks++;
+            } else {
+                record(ack, acked - intendedStart);
+            }
+            if (committed == null) {
+                report.missingCommits++;
+            } else {
+                record(commit, committed - intendedStart);
+                if (acked != null) {
+                    record(ackToCommit, committed - acked);
+                }
+            }
+        });
+        return report;
+    }
+
+    void print(PrintStream out) {
+        out.printf("%nLoad test %s: %d req/s, warmup %s, duration %s%n",
+                revision, options.getRate(), options.getWarmup(), options.getDuration());
+        out.printf("application properties: %s%n", options.getApplicationProperties());
+        out.printf("sent %d, ok %d, errors %d, missing acks %d, missing commits %d, max generator delay %.3f ms%n",
+                result.sent.sum(), result.requests.size(), result.errors.sum(), missingAcks, missingCommits,
+                result.maxSendDelayNanos / 1_000_000.0);
+        out.printf("%-14s %10s %10s %10s %10s %10s %10s %10s%n", "latency (ms)", "count", "mean", "p50", "p90", "p99", "p99.9", "max");
+        histograms.forEach((name, histogram) -> out.printf("%-14s %10d %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                name, histogram.getTotalCount(), histogram.getMean() / 1000.0,
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                histogram.getMaxValue() / 1000.0));
+    }
+
+    Path write(Path reportDir) throws IOException {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path runDir = Files.createDirectories(reportDir.resolve(timestamp + "-" + revision));
+
+        try (PrintStream out = new PrintStream(Files.newOutputStream(runDir.resolve("report.txt")), true, StandardCharsets.UTF_8)) {
+            print(out);
+        }
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(runDir.resolve(entry.getKey() + ".hgrm")), true, StandardCharsets.UTF_8)) {
+                // Values are recorded in microseconds, the distribution is written in milliseconds
+                entry.getValue().outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(runDir.resolve("summary.json").toFile(), summary(timestamp));
+        appendHistory(reportDir.resolve("history.csv"), timestamp);
+        return runDir;
+    }
+
+    private Map<String, Object> summary(String timestamp) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("timestamp", timestamp);
+        summary.put("revision", revision);
+        summary.put("rate", options.getRate());
+        summary.put("warmup", options.getWarmup().toString());
+        summary.put("duration", options.getDuration().toString());
+        summary.put("applicationProperties", options.getApplicationProperties());
+        summary.put("sent", result.sent.sum());
+        summary.put("ok", result.requests.size());
+        summary.put("errors", result.errors.sum());
+        summary.put("missingAcks", missingAcks);
+        summary.put("missingCommits", missingCommits);
+        Map<String, Object> latencies = new LinkedHashMap<>();
+        histograms.forEach((name, histogram) -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("count", histogram.getTotalCount());
+            values.put("meanMs", histogram.getMean() / 1000.0);
+            for (double percentile : PERCENTILES) {
+                values.put("p" + percentileLabel(percentile) + "Ms", millis(histogram, percentile));
+            }
+            values.put("maxMs", histogram.getMaxValue() / 1000.0);
+            latencies.put(name, values);
+        });
+        summary.put("latencies", latencies);
+        return summary;
+    }
+
+    private void appendHistory(Path historyFile, String timestamp) throws IOException {
+        StringBuilder header = new StringBuilder("timestamp,revision,rate,properties,sent,ok,errors,missing_commits");
+        StringBuilder line = new StringBuilder()
+                .append(timestamp).append(',').append(revision).append(',').append(options.getRate()).append(',')
+                .append('"').append(options.getApplicationProperties().toString().replace("\"", "'")).append('"').append(',')
+                .append(result.sent.sum()).append(',').append(result.requests.size()).append(',')
+                .append(result.errors.sum()).append(',').append(missingCommits);
+        histograms.forEach((name, histogram) -> {
+            for (double percentile : new double[]{50, 99}) {
+                header.append(',').append(name).append("_p").append(percentileLabel(percentile)).append("_ms");
+                line.append(',').append(String.format("%.3f", millis(histogram, percentile)));
+            }
+        });
+        if (Files.notExists(historyFile)) {
+            Files.writeString(historyFile, header + System.lineSeparator(), StandardCharsets.UTF_8);
+        }
+        Files.writeString(historyFile, line + System.lineSeparator(), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+
+    private Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram(HIGHEST_TRACKABLE_MICROS, 3));
+    }
+
+    private static void record(Histogram histogram, long nanos) {
+        histogram.recordValue(Math.min(Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static String percentileLabel(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile).replace(".", "");
+    }
+
+    private static String gitRevision() {
+        try {
+            Process process = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            return process.waitFor() == 0 && !output.isEmpty() ? output : "unknown";
+        } catch (IOException e) {
+            return "unknown";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "unknown";
+        }
+    }
+}
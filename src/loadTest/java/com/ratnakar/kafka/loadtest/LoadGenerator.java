@@ -0,0 +1,92 @@
+package com.ratnakar.kafka.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+Open loop load generator for POST /products/create.
+Request i is due at start + i / rate no matter how long earlier requests take, and every latency is measured from
+that intended send time. A slow server therefore shows up as growing latencies instead of silently lowering the
+request rate (coordinated omission). Requests are sent with the non-blocking HttpClient, so the generator thread
+only paces and never waits for responses.
+*/
+final class LoadGenerator {
+    private static final String REQUEST_BODY = "{\"title\":\"iPhone 15 Pro Max\",\"price\":1299.99,\"quantity\":25}";
+
+    private final URI createProductUri;
+    private final LoadTestOptions options;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+
+    LoadGenerator(URI createProductUri, LoadTestOptions options) {
+        this.createProductUri = createProductUri;
+        this.options = options;
+    }
+
+    Result run() {
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / options.getRate();
+        long start = System.nanoTime();
+        long measuredFrom = start + options.getWarmup().toNanos();
+        long end = measuredFrom + options.getDuration().toNanos();
+        Result result = new Result();
+        List<CompletableFuture<Void>> responses = new ArrayList<>();
+
+        for (long i = 0; ; i++) {
+            long intendedStart = start + i * periodNanos;
+            if (intendedStart >= end) {
+                break;
+            }
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean measured = intendedStart >= measuredFrom;
+            if (measured) {
+                result.sent.increment();
+                result.maxSendDelayNanos = Math.max(result.maxSendDelayNanos, System.nanoTime() - intendedStart);
+            }
+            HttpRequest request = HttpRequest.newBuilder(createProductUri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(REQUEST_BODY))
+                    .build();
+            responses.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .handle((response, ex) -> {
+                        long responded = System.nanoTime();
+                        if (!measured) {
+                            return null;
+                        }
+                        if (ex != null || response.statusCode() != 201) {
+                            result.errors.increment();
+                        } else {
+                            result.requests.put(response.body(), new long[]{intendedStart, responded});
+                        }
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(responses.toArray(new CompletableFuture[0]))
+                .orTimeout(options.getDrainTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .handle((ignored, ex) -> null)
+                .join();
+        return result;
+    }
+
+    static final class Result {
+        // productId -> {intended send time, response time}, successful measured requests only
+        final Map<String, long[]> requests = new ConcurrentHashMap<>();
+        final LongAdder sent = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        // How late the generator itself sent a request, should stay far below the measured latencies
+        volatile long maxSendDelayNanos;
+    }
+}
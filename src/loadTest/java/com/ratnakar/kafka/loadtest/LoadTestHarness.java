@@ -0,0 +1,145 @@
+package com.ratnakar.kafka.loadtest;
+
+import com.ratnakar.kafka.Application;
+import com.ratnakar.kafka.service.ProductEventRecords;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+Self-contained end-to-end load test, runs offline on one machine:
+1) starts an in-process KRaft Kafka broker (spring-kafka-test) with the product-created-events-topic
+2) starts the application against it with its in-memory H2 database, the downstream call goes to the
+   application's own /products/response/200 endpoint
+3) drives POST /products/create at a fixed open loop rate (LoadGenerator)
+4) waits for the outstanding acks and consumer commits and writes the latency report (LatencyReport);
+   with --app.consumer.listener-mode=eos the commits are read from the output topic (CommittedOutputWatcher)
+
+Run it with: gradle loadTest -PloadTestArgs="--rate=500 --duration=60s --app.consumer.listener-mode=batch"
+*/
+public final class LoadTestHarness {
+    private static final int PARTITIONS = 2;
+
+    private LoadTestHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, PARTITIONS, ProductEventRecords.PRODUCT_CREATED_EVENTS_TOPIC);
+        // Single broker: the internal transaction log (outbox relay) must not wait for 3 replicas
+        broker.brokerProperties(Map.of(
+                "transaction.state.log.replication.factor", "1",
+                "transaction.state.log.min.isr", "1"
+        ));
+        broker.afterPropertiesSet();
+        try {
+            run(options, broker.getBrokersAsString());
+        } finally {
+            broker.destroy();
+        }
+    }
+
+    private static void run(LoadTestOptions options, String bootstrapServers) throws Exception {
+        int port = freePort();
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("spring.kafka.bootstrap-servers", bootstrapServers);
+        properties.put("spring.kafka.admin.bootstrap-servers", bootstrapServers);
+        properties.put("spring.kafka.producer.bootstrap-servers", bootstrapServers);
+        properties.put("spring.kafka.consumer.bootstrap-servers", bootstrapServers);
+        properties.put("server.port", String.valueOf(port));
+        properties.put("app.downstream.url", "http://localhost:" + port + "/products/response/200");
+        // Per request INFO / TRACE logging would dominate the measurement
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.org.springframework.kafka.transaction", "WARN");
+        properties.put("logging.level.org.springframework.transaction", "WARN");
+        properties.putAll(options.getApplicationProperties());
+
+        PipelineTimestamps timestamps = new PipelineTimestamps();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .initializers(applicationContext -> applicationContext.getBeanFactory().addBeanPostProcessor(timestamps))
+                .run(toArguments(properties))) {
+            // TopicProvisioner may have expanded the topic to its declared partition count
+            int partitions = context.getBean(KafkaAdmin.class).describeTopics(ProductEventRecords.PRODUCT_CREATED_EVENTS_TOPIC)
+                    .get(ProductEventRecords.PRODUCT_CREATED_EVENTS_TOPIC).partitions().size();
+            waitForPartitionAssignment(context.getBean(KafkaListenerEndpointRegistry.class), partitions, Duration.ofSeconds(60));
+
+            try (CommittedOutputWatcher outputWatcher = eosOutputWatcher(context, bootstrapServers, timestamps)) {
+                System.out.printf("Sending %d req/s for %s (+%s warmup) to port %d%n",
+                        options.getRate(), options.getDuration(), options.getWarmup(), port);
+                LoadGenerator.Result result = new LoadGenerator(URI.create("http://localhost:" + port + "/products/create"), options).run();
+                waitForCommits(result, timestamps, options.getDrainTimeout());
+
+                LatencyReport report = LatencyReport.create(options, result, timestamps);
+                report.print(System.out);
+                Path runDir = report.write(options.getReportDir());
+                System.out.println("Report written to " + runDir.toAbsolutePath());
+            }
+        }
+    }
+
+    // The exactly-once listener forwards to the output topic instead of storing the messageId, see CommittedOutputWatcher
+    private static CommittedOutputWatcher eosOutputWatcher(ConfigurableApplicationContext context, String bootstrapServers,
+                                                           PipelineTimestamps timestamps) {
+        if (!"eos".equals(context.getEnvironment().getProperty("app.consumer.listener-mode"))) {
+            return null;
+        }
+        String outputTopic = context.getEnvironment().getProperty("app.consumer.eos.output-topic", "product-processed-events-topic");
+        int partitions = context.getBean(KafkaAdmin.class).describeTopics(outputTopic).get(outputTopic).partitions().size();
+        CommittedOutputWatcher outputWatcher = new CommittedOutputWatcher(bootstrapServers, outputTopic, partitions, timestamps);
+        outputWatcher.start();
+        return outputWatcher;
+    }
+
+    // Records sent before the consumer owns the partitions would be skipped (auto.offset.reset=latest)
+    private static void waitForPartitionAssignment(KafkaListenerEndpointRegistry registry, int partitions, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (assignedPartitions(registry) < partitions) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("Listener containers did not get the " + partitions + " partitions within " + timeout);
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private static long assignedPartitions(KafkaListenerEndpointRegistry registry) {
+        long assigned = 0;
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            if (container.getAssignedPartitions() != null) {
+                assigned += container.getAssignedPartitions().stream()
+                        .filter(partition -> partition.topic().equals(ProductEventRecords.PRODUCT_CREATED_EVENTS_TOPIC))
+                        .count();
+            }
+        }
+        return assigned;
+    }
+
+    private static void waitForCommits(LoadGenerator.Result result, PipelineTimestamps timestamps, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!timestamps.getCommitNanos().keySet().containsAll(result.requests.keySet()) && System.nanoTime() - deadline < 0) {
+            Thread.sleep(100);
+        }
+    }
+
+    private static String[] toArguments(Map<String, String> properties) {
+        return properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
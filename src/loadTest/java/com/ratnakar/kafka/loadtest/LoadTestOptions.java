@@ -0,0 +1,74 @@
+package com.ratnakar.kafka.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+Command line of the load harness, every argument is --name=value:
+  --rate=200               requests per second sent to POST /products/create (open loop)
+  --duration=60s           measured phase
+  --warmup=10s             phase before it, sent at the same rate but not recorded
+  --drain-timeout=60s      how long to wait for outstanding acks / commits after the last request
+  --report-dir=build/load-test
+Any other --name=value is passed to the application, e.g. --app.consumer.listener-mode=batch
+*/
+final class LoadTestOptions {
+    private int rate = 200;
+    private Duration duration = Duration.ofSeconds(60);
+    private Duration warmup = Duration.ofSeconds(10);
+    private Duration drainTimeout = Duration.ofSeconds(60);
+    private Path reportDir = Path.of("build", "load-test");
+    private final Map<String, String> applicationProperties = new LinkedHashMap<>();
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            switch (name) {
+                case "rate" -> options.rate = Integer.parseInt(value);
+                case "duration" -> options.duration = DurationStyle.detectAndParse(value);
+                case "warmup" -> options.warmup = DurationStyle.detectAndParse(value);
+                case "drain-timeout" -> options.drainTimeout = DurationStyle.detectAndParse(value);
+                case "report-dir" -> options.reportDir = Path.of(value);
+                default -> options.applicationProperties.put(name, value);
+            }
+        }
+        if (options.rate <= 0) {
+            throw new IllegalArgumentException("--rate must be positive");
+        }
+        return options;
+    }
+
+    int getRate() {
+        return rate;
+    }
+
+    Duration getDuration() {
+        return duration;
+    }
+
+    Duration getWarmup() {
+        return warmup;
+    }
+
+    Duration getDrainTimeout() {
+        return drainTimeout;
+    }
+
+    Path getReportDir() {
+        return reportDir;
+    }
+
+    Map<String, String> getApplicationProperties() {
+        return applicationProperties;
+    }
+}
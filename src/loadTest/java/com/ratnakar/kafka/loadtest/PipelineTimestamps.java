@@ -0,0 +1,103 @@
+package com.ratnakar.kafka.loadtest;
+
+import com.ratnakar.kafka.idempotency.IdempotencyStore;
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.CompositeProducerListener;
+import org.springframework.kafka.support.LoggingProducerListener;
+import org.springframework.kafka.support.ProducerListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Records, per productId, when the broker acknowledged the ProductCreatedEvent and when the consumer committed its
+ProcessEventEntity, without touching the application code:
+- the "kafkaTemplate" bean gets an extra ProducerListener, onSuccess runs when the ack arrives
+- the IdempotencyStore (jpa or rocksdb) is wrapped, the time is taken in afterCommit() of the listener's database
+  transaction, or right after add / addAll when there is none
+- listener-mode=eos stores nothing, there CommittedOutputWatcher calls recordCommit when the forwarded event becomes
+  visible to a read_committed consumer
+All times are System.nanoTime() of this JVM, the same clock the load generator uses.
+*/
+final class PipelineTimestamps implements BeanPostProcessor {
+    private final Map<String, Long> ackNanos = new ConcurrentHashMap<>();
+    private final Map<String, Long> commitNanos = new ConcurrentHashMap<>();
+
+    Map<String, Long> getAckNanos() {
+        return ackNanos;
+    }
+
+    Map<String, Long> getCommitNanos() {
+        return commitNanos;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof KafkaTemplate<?, ?> && "kafkaTemplate".equals(beanName)) {
+            KafkaTemplate<String, ProductCreatedEvent> kafkaTemplate = (KafkaTemplate<String, ProductCreatedEvent>) bean;
+            kafkaTemplate.setProducerListener(new CompositeProducerListener<>(new LoggingProducerListener<>(), ackListener()));
+            return bean;
+        }
+        if (bean instanceof IdempotencyStore) {
+            ProxyFactory proxyFactory = new ProxyFactory(bean);
+            proxyFactory.addAdvice(commitInterceptor());
+            return proxyFactory.getProxy();
+        }
+        return bean;
+    }
+
+    private ProducerListener<String, ProductCreatedEvent> ackListener() {
+        return new ProducerListener<>() {
+            @Override
+            public void onSuccess(ProducerRecord<String, ProductCreatedEvent> producerRecord, RecordMetadata recordMetadata) {
+                ackNanos.putIfAbsent(producerRecord.key(), System.nanoTime());
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private MethodInterceptor commitInterceptor() {
+        return invocation -> {
+            Object result = invocation.proceed();
+            String method = invocation.getMethod().getName();
+            // The productIds of the stored messageIds
+            if (method.equals("add")) {
+                recordAfterCommit(List.of((String) invocation.getArguments()[1]));
+            } else if (method.equals("addAll")) {
+                recordAfterCommit(new ArrayList<>(((Map<?, String>) invocation.getArguments()[0]).values()));
+            }
+            return result;
+        };
+    }
+
+    private void recordAfterCommit(List<String> saved) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recordCommit(saved);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recordCommit(saved);
+            }
+        });
+    }
+
+    void recordCommit(List<String> productIds) {
+        long now = System.nanoTime();
+        for (String productId : productIds) {
+            commitNanos.putIfAbsent(productId, now);
+        }
+    }
+}
@@ -2,20 +2,22 @@ package com.ratnakar.kafka;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling // Background jobs such as the outbox relay (OutboxRelay)
 public class Application {
+    // Startup steps kept for the timing report (startup/StartupTimingReport) and GET /actuator/startup
+    private static final int STARTUP_STEPS_CAPACITY = 10000;
+
     public static void main(String[] args) {
-        SpringApplication.run(Application.class, args);
+        SpringApplication application = new SpringApplication(Application.class);
+        application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS_CAPACITY));
+        application.run(args);
     }
     /*
-    Below getRestTemplate method will return the instance of RestTemplate, This will create the new instance of RestTemplate HTTP Client
-    And it will Put it into Spring Application Context, We can now inject this getRestTemplate() Object in our Kafka listener
+    The HTTP client used by the Kafka listeners to call the downstream service is created in
+    config/DownstreamClientConfig (pooled JDK HttpClient with timeouts), see client/DownstreamServiceClient.
     */
-    @Bean
-    RestTemplate getRestTemplate(){
-        return new RestTemplate();
-    }
 }
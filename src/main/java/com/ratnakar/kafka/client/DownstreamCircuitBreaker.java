@@ -0,0 +1,147 @@
+package com.ratnakar.kafka.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/*
+Count based circuit breaker for the downstream service.
+CLOSED    -> every call goes through, outcomes are kept in a sliding window of the last slidingWindowSize calls.
+             When at least minimumCalls were made and the failure rate reaches failureRateThreshold % -> OPEN
+OPEN      -> no call is made (CircuitOpenException), after openDuration the breaker is moved to HALF_OPEN
+             by DownstreamCircuitListenerPauser (which also pauses / resumes the Kafka listener containers)
+HALF_OPEN -> only halfOpenTrialCalls calls are allowed: all succeed -> CLOSED, any failure -> OPEN again
+*/
+@Slf4j
+@Component
+public class DownstreamCircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    @Value("${app.downstream.circuit-breaker.enabled:true}")
+    private boolean enabled;
+    @Value("${app.downstream.circuit-breaker.failure-rate-threshold:50}")
+    private int failureRateThreshold;
+    @Value("${app.downstream.circuit-breaker.sliding-window-size:20}")
+    private int slidingWindowSize;
+    @Value("${app.downstream.circuit-breaker.minimum-calls:10}")
+    private int minimumCalls;
+    @Value("${app.downstream.circuit-breaker.open-duration:PT30S}")
+    private Duration openDuration;
+    @Value("${app.downstream.circuit-breaker.half-open-trial-calls:3}")
+    private int halfOpenTrialCalls;
+
+    private final List<Consumer<State>> stateListeners = new CopyOnWriteArrayList<>();
+    private State state = State.CLOSED;
+    // Ring buffer of the last call outcomes (true = failure)
+    private boolean[] outcomes;
+    private int recordedCalls;
+    private int nextSlot;
+    private int failures;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    public synchronized boolean tryAcquirePermission() {
+        if (!enabled || state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && halfOpenPermits > 0) {
+            halfOpenPermits--;
+            return true;
+        }
+        return false;
+    }
+
+    public void onSuccess() {
+        record(false);
+    }
+
+    public void onFailure() {
+        record(true);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    public void addStateListener(Consumer<State> stateListener) {
+        stateListeners.add(stateListener);
+    }
+
+    public void transitionToHalfOpen() {
+        transition(State.OPEN, State.HALF_OPEN);
+    }
+
+    private void record(boolean failure) {
+        if (!enabled) {
+            return;
+        }
+        State newState = null;
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                if (failure) {
+                    newState = changeState(State.OPEN);
+                } else if (++halfOpenSuccesses >= halfOpenTrialCalls) {
+                    newState = changeState(State.CLOSED);
+                }
+            } else if (state == State.CLOSED) {
+                if (outcomes == null) {
+                    outcomes = new boolean[slidingWindowSize];
+                }
+                if (recordedCalls == slidingWindowSize && outcomes[nextSlot]) {
+                    failures--;
+                }
+                outcomes[nextSlot] = failure;
+                nextSlot = (nextSlot + 1) % slidingWindowSize;
+                recordedCalls = Math.min(recordedCalls + 1, slidingWindowSize);
+                if (failure) {
+                    failures++;
+                }
+                if (recordedCalls >= minimumCalls && failures * 100 >= failureRateThreshold * recordedCalls) {
+                    newState = changeState(State.OPEN);
+                }
+            }
+        }
+        notifyListeners(newState);
+    }
+
+    private void transition(State from, State to) {
+        State newState = null;
+        synchronized (this) {
+            if (state == from) {
+                newState = changeState(to);
+            }
+        }
+        notifyListeners(newState);
+    }
+
+    // Must be called while holding the lock, listeners are notified outside of it
+    private State changeState(State newState) {
+        log.warn("Downstream circuit breaker {} -> {}", state, newState);
+        state = newState;
+        recordedCalls = 0;
+        nextSlot = 0;
+        failures = 0;
+        halfOpenSuccesses = 0;
+        halfOpenPermits = newState == State.HALF_OPEN ? halfOpenTrialCalls : 0;
+        if (outcomes != null) {
+            Arrays.fill(outcomes, false);
+        }
+        return newState;
+    }
+
+    private void notifyListeners(State newState) {
+        if (newState != null) {
+            stateListeners.forEach(listener -> listener.accept(newState));
+        }
+    }
+}
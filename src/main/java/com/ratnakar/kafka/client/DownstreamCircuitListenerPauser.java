@@ -0,0 +1,58 @@
+package com.ratnakar.kafka.client;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+Stops consuming while the downstream service is unhealthy instead of burning through retries record by record.
+- breaker OPEN      -> pause every listener container (the consumers keep polling to stay in the group but get no records)
+                       and schedule the move to HALF_OPEN after the open duration
+- HALF_OPEN / CLOSED -> resume the containers, the redelivered records are the half-open trial calls
+*/
+@Slf4j
+@Component
+public class DownstreamCircuitListenerPauser {
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+    private DownstreamCircuitBreaker downstreamCircuitBreaker;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "downstream-circuit-breaker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DownstreamCircuitListenerPauser(KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry,
+                                           DownstreamCircuitBreaker downstreamCircuitBreaker) {
+        this.kafkaListenerEndpointRegistry = kafkaListenerEndpointRegistry;
+        this.downstreamCircuitBreaker = downstreamCircuitBreaker;
+    }
+
+    @PostConstruct
+    void register() {
+        downstreamCircuitBreaker.addStateListener(this::onStateChange);
+    }
+
+    private void onStateChange(DownstreamCircuitBreaker.State state) {
+        if (state == DownstreamCircuitBreaker.State.OPEN) {
+            log.warn("Downstream service unhealthy, pausing Kafka listener containers for {}", downstreamCircuitBreaker.getOpenDuration());
+            kafkaListenerEndpointRegistry.getListenerContainers().forEach(MessageListenerContainer::pause);
+            scheduler.schedule(downstreamCircuitBreaker::transitionToHalfOpen,
+                    downstreamCircuitBreaker.getOpenDuration().toMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            log.info("Resuming Kafka listener containers, downstream circuit breaker is {}", state);
+            kafkaListenerEndpointRegistry.getListenerContainers().forEach(MessageListenerContainer::resume);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
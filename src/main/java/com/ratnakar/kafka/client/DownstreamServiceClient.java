@@ -0,0 +1,127 @@
+package com.ratnakar.kafka.client;
+
+import com.ratnakar.kafka.exception.CircuitOpenException;
+import com.ratnakar.kafka.exception.NotRetryableException;
+import com.ratnakar.kafka.exception.RetryableException;
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/*
+HTTP client for the remote service that is called for every consumed ProductCreatedEvent.
+It is shared by all listeners so that they map HTTP failures to the same exceptions:
+- connection refused, connect / read timeout -> RetryableException    -> retried with back off
+- HTTP 5xx                                   -> NotRetryableException -> sent to the Dead Letter Topic
+- any other non 2xx status                   -> NotRetryableException -> sent to the Dead Letter Topic
+- circuit breaker open                       -> CircuitOpenException  -> retried once the circuit allows calls again
+Calls go through a pooled keep-alive JDK HttpClient (DownstreamClientConfig) and are non-blocking (sendAsync),
+notifyProductCreated() is the blocking variant used by the listeners.
+Metrics: downstream.http.requests (timer tagged with status and outcome, status IO_ERROR when no response was received),
+downstream.circuit.rejected (calls not made because the breaker was open) and downstream.circuit.state (0 closed, 1 open, 2 half open).
+*/
+@Slf4j
+@Component
+public class DownstreamServiceClient {
+    private HttpClient downstreamHttpClient;
+    private DownstreamCircuitBreaker downstreamCircuitBreaker;
+    private MeterRegistry meterRegistry;
+    private Counter circuitRejections;
+
+    @Value("${app.downstream.url:http://localhost:8090/products/response/200}")
+    private URI requestUrl;
+
+    // Maximum time to wait for the response once the request is sent
+    @Value("${app.downstream.read-timeout:PT5S}")
+    private Duration readTimeout;
+
+    public DownstreamServiceClient(HttpClient downstreamHttpClient, DownstreamCircuitBreaker downstreamCircuitBreaker,
+                                   MeterRegistry meterRegistry) {
+        this.downstreamHttpClient = downstreamHttpClient;
+        this.downstreamCircuitBreaker = downstreamCircuitBreaker;
+        this.meterRegistry = meterRegistry;
+        this.circuitRejections = Counter.builder("downstream.circuit.rejected").register(meterRegistry);
+        Gauge.builder("downstream.circuit.state", downstreamCircuitBreaker, circuitBreaker -> circuitBreaker.getState().ordinal())
+                .register(meterRegistry);
+    }
+
+    public void notifyProductCreated(ProductCreatedEvent productCreatedEvent) {
+        try {
+            notifyProductCreatedAsync(productCreatedEvent).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new NotRetryableException(e.getCause());
+        }
+    }
+
+    public CompletableFuture<Void> notifyProductCreatedAsync(ProductCreatedEvent productCreatedEvent) {
+        if (!downstreamCircuitBreaker.tryAcquirePermission()) {
+            circuitRejections.increment();
+            return CompletableFuture.failedFuture(new CircuitOpenException(
+                    "Downstream circuit breaker is " + downstreamCircuitBreaker.getState() + ", product " + productCreatedEvent.getProductId() + " not sent"));
+        }
+        HttpRequest request = HttpRequest.newBuilder(requestUrl)
+                .timeout(readTimeout)
+                .GET()
+                .build();
+        long start = System.nanoTime();
+        return downstreamHttpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, ex) -> {
+                    recordRequest(response, System.nanoTime() - start);
+                    if (ex != null) {
+                        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                        log.error(cause.getMessage());
+                        if (cause instanceof IOException) {
+                            downstreamCircuitBreaker.onFailure();
+                            throw new RetryableException(cause);
+                        }
+                        downstreamCircuitBreaker.onSuccess();
+                        throw new NotRetryableException(cause);
+                    }
+                    int status = response.statusCode();
+                    if (status >= 500) {
+                        downstreamCircuitBreaker.onFailure();
+                        log.error("Downstream service returned {}: {}", status, response.body());
+                        throw new NotRetryableException("Downstream service returned " + status);
+                    }
+                    downstreamCircuitBreaker.onSuccess();
+                    if (status / 100 != 2) {
+                        // if not retryable exception is thrown then our message will go to Dead letter topic
+                        throw new NotRetryableException("Downstream service returned " + status);
+                    }
+                    log.info("Received response from a remote service: {}", response.body());
+                    return null;
+                });
+    }
+
+    private void recordRequest(HttpResponse<String> response, long nanos) {
+        String status = response == null ? "IO_ERROR" : String.valueOf(response.statusCode());
+        String outcome = response == null ? "UNKNOWN" : switch (response.statusCode() / 100) {
+            case 2 -> "SUCCESS";
+            case 4 -> "CLIENT_ERROR";
+            case 5 -> "SERVER_ERROR";
+            default -> "UNKNOWN";
+        };
+        Timer.builder("downstream.http.requests")
+                .tag("status", status)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
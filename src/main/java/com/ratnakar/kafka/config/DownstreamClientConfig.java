@@ -0,0 +1,58 @@
+package com.ratnakar.kafka.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+@Configuration
+public class DownstreamClientConfig {
+
+    // Maximum time to establish the TCP connection to the downstream service
+    @Value("${app.downstream.connect-timeout:PT2S}")
+    private Duration connectTimeout;
+
+    // HTTP_1_1 (pooled keep-alive connections) or HTTP_2 (multiplexed, falls back to HTTP/1.1 if the server does not support it)
+    @Value("${app.downstream.http-version:HTTP_1_1}")
+    private HttpClient.Version httpVersion;
+
+    // How long an idle pooled connection is kept open for reuse
+    @Value("${app.downstream.keep-alive:PT30S}")
+    private Duration keepAlive;
+
+    /**
+     * Creates the JDK HttpClient used by DownstreamServiceClient.
+     * <p>
+     * Unlike new RestTemplate() (SimpleClientHttpRequestFactory) it:
+     * - keeps a pool of keep-alive connections that are reused across events
+     * - applies connect timeouts (request / read timeouts are set per request)
+     * - offers a non-blocking API (sendAsync) returning a CompletableFuture
+     * <p>
+     * With spring.threads.virtual.enabled=true on Java 21+ the client's executor uses virtual threads. That executor only
+     * runs the client's internal asynchronous tasks (handling a response and completing the sendAsync() future), the
+     * socket I/O itself is done by the client's selector thread. It does not change where a caller waits:
+     * the blocking notifyProductCreated() joins the future on the calling listener thread, which is a virtual thread
+     * only through the listener task executor (KafkaConsumerConfig.configureListenerThreads).
+     */
+    @Bean
+    public HttpClient downstreamHttpClient(Environment environment) {
+        // The JDK connection pool reads its idle timeout from a system property when the first client is created
+        if (System.getProperty("jdk.httpclient.keepalive.timeout") == null) {
+            System.setProperty("jdk.httpclient.keepalive.timeout", String.valueOf(keepAlive.toSeconds()));
+        }
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(httpVersion)
+                .connectTimeout(connectTimeout);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor httpClientExecutor = new SimpleAsyncTaskExecutor("downstream-http-");
+            httpClientExecutor.setVirtualThreads(true);
+            builder.executor(httpClientExecutor);
+        }
+        return builder.build();
+    }
+}
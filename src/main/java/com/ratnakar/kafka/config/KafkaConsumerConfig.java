@@ -2,23 +2,43 @@ package com.ratnakar.kafka.config;
 
 // ========================= IMPORTS EXPLANATION =========================
 
+import com.ratnakar.kafka.exception.CircuitOpenException;
 import com.ratnakar.kafka.exception.NotRetryableException;
 import com.ratnakar.kafka.exception.RetryableException;
+import com.ratnakar.kafka.handler.PartitionHandoverListener;
+import com.ratnakar.kafka.metrics.ErrorHandlerMetrics;
+import com.ratnakar.kafka.metrics.PollProcessingMetrics;
+import com.ratnakar.kafka.producer.ProducerFactoryRegistry;
+import com.ratnakar.kafka.serialization.ProductCreatedEventDeserializer;
+import com.ratnakar.kafka.tuning.ConsumerTuningProfile;
+import io.micrometer.core.instrument.MeterRegistry;
+// Registry the Kafka client metrics and the error handler counters are published to (Actuator / Prometheus)
+
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 // Provides Kafka consumer configuration keys like bootstrap servers, group id, deserializers, etc.
 
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
+// Incremental cooperative rebalancing: only the partitions that move are revoked
+
 import org.apache.kafka.clients.producer.ProducerConfig;
 // Provides Kafka producer configuration keys like serializers, retries, acks, etc.
 
 import org.apache.kafka.common.serialization.StringDeserializer;
 // Deserializes Kafka message KEY from byte[] into Java String
 
-import org.apache.kafka.common.serialization.StringSerializer;
-// Serializes Java String into byte[] before sending message KEY to Kafka
+import org.apache.kafka.clients.admin.NewTopic;
+// Topic created by KafkaAdmin at startup (output topic of the exactly-once pipeline)
 
 import org.springframework.beans.factory.annotation.Autowired;
 // Enables dependency injection of Spring-managed beans
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+// Creates the exactly-once beans only with app.consumer.listener-mode=eos
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+// Tells whether virtual threads are enabled (spring.threads.virtual.enabled) AND supported by the running JVM
+
 import org.springframework.context.annotation.Bean;
 // Marks a method as a Spring Bean definition
 
@@ -28,15 +48,33 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
 // Used to read values from application.properties or application.yml
 
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+// Starts a new (platform or virtual) thread for every task, used as listener container thread factory
+
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 // Factory that creates Kafka listener containers with support for concurrency
 
+import org.springframework.kafka.config.TopicBuilder;
+// Fluent builder for NewTopic
+
 import org.springframework.kafka.core.*;
 // Contains core Kafka components like ConsumerFactory, ProducerFactory, KafkaTemplate
 
 import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
 // Publishes failed messages to a Dead Letter Topic (DLT)
 
+import org.springframework.kafka.listener.ContainerProperties;
+// Container settings (transaction manager, assignment commit option)
+
+import org.springframework.kafka.listener.DefaultAfterRollbackProcessor;
+// Retries / recovers the failed record after a listener transaction was rolled back (exactly-once container)
+
+import org.springframework.kafka.listener.FailedRecordProcessor;
+// Common base of DefaultErrorHandler and DefaultAfterRollbackProcessor (exception classification, back off)
+
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+// Starts the Kafka transaction the exactly-once listener container runs every poll in
+
 import org.springframework.kafka.listener.DefaultErrorHandler;
 // Central error handling mechanism for Kafka consumers
 
@@ -46,13 +84,14 @@ import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 // Converts JSON byte[] messages into Java POJOs
 
-import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.StringUtils;
 import org.springframework.util.backoff.FixedBackOff;
 import org.springframework.web.client.HttpServerErrorException;
-// Converts Java objects into JSON before publishing to Kafka
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 // Used to store Kafka configuration key-value pairs
 
 /**
@@ -62,6 +101,8 @@ import java.util.Map;
  */
 @Configuration
 public class KafkaConsumerConfig {
+    // Id of the containers of @KafkaListener methods without an explicit id, followed by #<n>
+    private static final String DEFAULT_LISTENER_ID_PREFIX = "org.springframework.kafka.KafkaListenerEndpointContainer";
 
     /**
      * Injects Spring's Environment object.
@@ -88,7 +129,7 @@ public class KafkaConsumerConfig {
      * @Bean: Spring creates this object and manages it as a singleton.
      */
     @Bean
-    public ConsumerFactory<String, Object> consumerFactory() {
+    public ConsumerFactory<String, Object> consumerFactory(MeterRegistry meterRegistry) {
 
         // Stores Kafka consumer configuration as key-value pairs
         Map<String, Object> config = new HashMap<>();
@@ -134,10 +175,12 @@ public class KafkaConsumerConfig {
          * by ErrorHandlingDeserializer.
          *
          * JsonDeserializer converts JSON payload into Java objects.
+         * With app.kafka.value-format=binary, ProductCreatedEventDeserializer reads the compact binary layout instead.
+         * Producer and consumer must use the same format, switch both together.
          */
         config.put(
                 ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS,
-                JsonDeserializer.class
+                isBinaryValueFormat() ? ProductCreatedEventDeserializer.class : JsonDeserializer.class
         );
 
         /**
@@ -164,13 +207,70 @@ public class KafkaConsumerConfig {
                 environment.getProperty("spring.kafka.consumer.group-id")
         );
 
+        /**
+         * Isolation level
+         * - read_committed skips records of aborted Kafka transactions
+         *   (outbox relay and transaction batching publish inside transactions)
+         */
+        config.put(
+                ConsumerConfig.ISOLATION_LEVEL_CONFIG,
+                environment.getProperty("spring.kafka.consumer.isolation-level", "read_committed")
+        );
+
+        /**
+         * Rebalance protocol (app.consumer.rebalance-mode)
+         * - cooperative : CooperativeStickyAssignor, a rebalance only revokes the partitions that move to
+         *                 another member, the other partitions keep being consumed during the rebalance
+         * - eager       : Kafka's default assignor list (range, cooperative-sticky), the eager protocol:
+         *                 every rebalance revokes all partitions of all members
+         * The default list already contains cooperative-sticky, so one rolling deploy switches a running group.
+         */
+        if (isCooperativeRebalancing()) {
+            config.put(
+                    ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG,
+                    CooperativeStickyAssignor.class.getName()
+            );
+        }
+
+        /**
+         * Static membership (app.consumer.rebalance.group-instance-id, the pod name)
+         * - the group.instance.id is set per listener container, see configureRebalancing()
+         * - a restarted consumer that rejoins within session.timeout.ms gets its partitions back
+         *   without any rebalance; a consumer that is gone for good is only replaced after that timeout
+         */
+        if (StringUtils.hasText(groupInstanceId())) {
+            config.put(
+                    ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG,
+                    (int) environment.getProperty("app.consumer.rebalance.session-timeout", Duration.class, Duration.ofSeconds(90)).toMillis()
+            );
+        }
+
+        /**
+         * Fetch and poll sizing (app.consumer.tuning.profile, see ConsumerTuningProfile)
+         * - low-latency / high-throughput: fetch.min.bytes, fetch.max.wait.ms, max.poll.records, max.partition.fetch.bytes
+         * - adaptive: starts with low-latency, AdaptiveConsumerTuner resizes them from the lag and the poll processing time
+         * max.poll.interval.ms: the records of one poll have to be processed within it, otherwise the consumer
+         * is considered failed, leaves the group and its partitions are rebalanced
+         */
+        config.putAll(ConsumerTuningProfile.fromProperty(
+                environment.getProperty("app.consumer.tuning.profile", "low-latency")).getSettings().consumerConfigs());
+        config.put(
+                ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG,
+                (int) environment.getProperty("app.consumer.tuning.max-poll-interval", Duration.class, Duration.ofMinutes(5)).toMillis()
+        );
+
         /**
          * Creates a Kafka ConsumerFactory using the above configuration.
          *
          * Spring Kafka uses this factory internally to create consumers
          * whenever a @KafkaListener starts.
+         *
+         * MicrometerConsumerListener binds the Kafka consumer metrics of every consumer to the MeterRegistry,
+         * among them kafka.consumer.fetch.manager.records.lag tagged with topic and partition (consumer lag per partition).
          */
-        return new DefaultKafkaConsumerFactory<>(config);
+        DefaultKafkaConsumerFactory<String, Object> consumerFactory = new DefaultKafkaConsumerFactory<>(config);
+        consumerFactory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return consumerFactory;
     }
 
     /**
@@ -187,8 +287,228 @@ public class KafkaConsumerConfig {
     public ConcurrentKafkaListenerContainerFactory<String, Object>
     kafkaListenerContainerFactory(
             ConsumerFactory<String, Object> consumerFactory,
-            KafkaTemplate<String, Object> kafkaTemplateConfig) {
+            KafkaTemplate<String, Object> kafkaTemplateConfig,
+            MeterRegistry meterRegistry,
+            PollProcessingMetrics pollProcessingMetrics) {
+
+        DefaultErrorHandler errorHandler = createErrorHandler(kafkaTemplateConfig, meterRegistry);
+
+        /**
+         * Factory responsible for creating Kafka listener containers.
+         *
+         * Supports:
+         * - Concurrent message processing
+         * - Partition-based parallelism
+         * - Custom error handling
+         */
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+
+        /**
+         * Associates this listener factory with the consumer factory.
+         *
+         * This tells Spring how to create actual Kafka consumers.
+         */
+        factory.setConsumerFactory(consumerFactory);
+
+        /**
+         * Registers the common error handler.
+         *
+         * Any exception thrown during message consumption
+         * will be handled here.
+         */
+        factory.setCommonErrorHandler(errorHandler);
+
+        // Times every poll (kafka.consumer.poll.*), see PollProcessingMetrics
+        factory.setRecordInterceptor(pollProcessingMetrics);
+
+        configureListenerThreads(factory);
+        configureRebalancing(factory, meterRegistry, true);
+
+        return factory;
+    }
+
+    /**
+     * batchKafkaListenerContainerFactory()
+     * -------------------------------------
+     * Same consumer factory and error handling as kafkaListenerContainerFactory(),
+     * but the listener receives ALL records returned by one poll as a List.
+     * <p>
+     * Used by BatchEventHandler when app.consumer.listener-mode=batch.
+     * The listener reports a failed record with BatchListenerFailedException(index),
+     * so the DefaultErrorHandler still retries / dead-letters bad records one at a time.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object>
+    batchKafkaListenerContainerFactory(
+            ConsumerFactory<String, Object> consumerFactory,
+            KafkaTemplate<String, Object> kafkaTemplateConfig,
+            MeterRegistry meterRegistry,
+            PollProcessingMetrics pollProcessingMetrics) {
+
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.setCommonErrorHandler(createErrorHandler(kafkaTemplateConfig, meterRegistry));
+        factory.setBatchInterceptor(pollProcessingMetrics);
+        configureListenerThreads(factory);
+        configureRebalancing(factory, meterRegistry, true);
+        return factory;
+    }
+
+    /**
+     * exactlyOnceKafkaListenerContainerFactory()
+     * ------------------------------------------
+     * Read-process-write container used by ExactlyOnceEventHandler when app.consumer.listener-mode=eos.
+     * <p>
+     * The container is bound to a KafkaTransactionManager over exactlyOnceProducerFactory (not a bean, so Spring
+     * Boot still registers its kafkaTransactionManager for the publish side), for every poll it:
+     * 1) begins a Kafka transaction on a producer of exactlyOnceProducerFactory
+     * 2) calls the listener, whose sends through exactlyOnceKafkaTemplate join that transaction
+     * 3) adds the consumed offsets to the transaction (sendOffsetsToTransaction) and commits
+     * so the output events and the consumer offsets are committed atomically, or not at all.
+     * Consumers read with isolation.level=read_committed, so nobody sees the output of an aborted attempt.
+     * This makes the per-message processed_events lookup unnecessary for pure Kafka-to-Kafka flows.
+     * <p>
+     * With a transaction manager, listener exceptions go to the AfterRollbackProcessor instead of the
+     * CommonErrorHandler. DefaultAfterRollbackProcessor seeks back and retries with the same classification
+     * and back off as the other containers; the DLT record and the offset of the recovered record are
+     * committed in one transaction as well (transactional template + commitRecovered=true).
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.consumer.listener-mode", havingValue = "eos")
+    public ConcurrentKafkaListenerContainerFactory<String, Object>
+    exactlyOnceKafkaListenerContainerFactory(
+            ConsumerFactory<String, Object> consumerFactory,
+            ProducerFactory<String, Object> exactlyOnceProducerFactory,
+            KafkaTemplate<String, Object> exactlyOnceKafkaTemplate,
+            MeterRegistry meterRegistry,
+            PollProcessingMetrics pollProcessingMetrics) {
+
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.getContainerProperties().setKafkaAwareTransactionManager(new KafkaTransactionManager<>(exactlyOnceProducerFactory));
+        // The initial position committed on partition assignment goes through a transaction too (the default commits it
+        // with the consumer, and the broker then warns that the group mixes consumer and transactional offset commits)
+        factory.getContainerProperties().setAssignmentCommitOption(ContainerProperties.AssignmentCommitOption.LATEST_ONLY);
+
+        DefaultAfterRollbackProcessor<String, Object> afterRollbackProcessor = new DefaultAfterRollbackProcessor<>(
+                new DeadLetterPublishingRecoverer(exactlyOnceKafkaTemplate),
+                new FixedBackOff(5000, 3),
+                exactlyOnceKafkaTemplate,
+                true);
+        configureFailedRecordProcessor(afterRollbackProcessor, meterRegistry);
+        factory.setAfterRollbackProcessor(afterRollbackProcessor);
+        factory.setRecordInterceptor(pollProcessingMetrics);
+
+        configureListenerThreads(factory);
+        // The consumed offsets are committed in the Kafka transactions, never by the rebalance listener
+        configureRebalancing(factory, meterRegistry, false);
+        return factory;
+    }
 
+    /**
+     * Transactional producers of the exactly-once pipeline.
+     * Same settings as the product producers, but their own transactional.id prefix; spring-kafka appends a
+     * suffix per producer and, with EOS mode V2, fences zombie instances through the consumer group metadata.
+     * The different prefix makes it a separate factory in ProducerFactoryRegistry.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.consumer.listener-mode", havingValue = "eos")
+    public ProducerFactory<String, Object> exactlyOnceProducerFactory(
+            ProducerFactoryRegistry producerFactoryRegistry, KafkaProducerConfig kafkaProducerConfig) {
+        Map<String, Object> config = new HashMap<>(kafkaProducerConfig.producerConfigs());
+        config.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG,
+                environment.getProperty("app.consumer.eos.transaction-id-prefix", "product-events-eos-"));
+        config.put(ProducerConfig.CLIENT_ID_CONFIG, "exactly-once");
+        return producerFactoryRegistry.producerFactory("exactly-once", config);
+    }
+
+    /**
+     * Template the exactly-once listener publishes its output events with.
+     * Inside the listener its sends join the transaction started by the container.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.consumer.listener-mode", havingValue = "eos")
+    public KafkaTemplate<String, Object> exactlyOnceKafkaTemplate(
+            ProducerFactory<String, Object> exactlyOnceProducerFactory) {
+        return new KafkaTemplate<>(exactlyOnceProducerFactory);
+    }
+
+    // Output topic of the exactly-once pipeline, same partition count as product-created-events-topic.
+    // With app.topics.provisioning.enabled TopicDeclarations declares it instead (app.topics.<output topic>.*)
+    @Bean
+    @ConditionalOnExpression("'${app.consumer.listener-mode:record}' == 'eos' and !${app.topics.provisioning.enabled:true}")
+    public NewTopic exactlyOnceOutputTopic() {
+        return TopicBuilder
+                .name(environment.getProperty("app.consumer.eos.output-topic", "product-processed-events-topic"))
+                .partitions(2)
+                .replicas(1)
+                .configs(Map.of("min.insync.replicas", "1"))
+                .build();
+    }
+
+    /**
+     * Runs the listener containers (one consumer thread per container / concurrency) on
+     * virtual threads when spring.threads.virtual.enabled=true on Java 21+.
+     * <p>
+     * Consumer threads spend most of their time blocked on the downstream HTTP call,
+     * a blocked virtual thread only parks and releases its carrier thread.
+     * Without virtual threads the container keeps its default platform-thread executor.
+     */
+    private void configureListenerThreads(ConcurrentKafkaListenerContainerFactory<String, Object> factory) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor listenerTaskExecutor = new SimpleAsyncTaskExecutor("kafka-listener-");
+            listenerTaskExecutor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(listenerTaskExecutor);
+        }
+    }
+
+    /**
+     * Rebalance handling of every listener container factory.
+     * <p>
+     * PartitionHandoverListener commits the position of the revoked partitions (only those) before they are
+     * released and records the rebalance metrics (kafka.consumer.rebalance.*).
+     * <p>
+     * With static membership every container gets its own group.instance.id,
+     * <group-instance-id>-<listener id>: unique within the group (the retry topic containers share the group
+     * of the main listener) and the same after a restart. spring-kafka appends -<n>, the consumer index of the
+     * container (concurrency). Kafka only accepts ASCII alphanumerics, '.', '_' and '-' in the id.
+     */
+    private void configureRebalancing(ConcurrentKafkaListenerContainerFactory<String, Object> factory,
+                                      MeterRegistry meterRegistry, boolean commitRevoked) {
+        factory.getContainerProperties().setConsumerRebalanceListener(new PartitionHandoverListener(
+                meterRegistry, isCooperativeRebalancing() ? "cooperative" : "eager", commitRevoked));
+
+        String groupInstanceId = groupInstanceId();
+        if (StringUtils.hasText(groupInstanceId)) {
+            factory.setContainerCustomizer(container -> {
+                // A copy: the factory hands the same Properties object to all of its containers
+                Properties consumerProperties = new Properties();
+                consumerProperties.putAll(container.getContainerProperties().getKafkaConsumerProperties());
+                String listenerId = container.getListenerId().replace(DEFAULT_LISTENER_ID_PREFIX, "listener");
+                consumerProperties.setProperty(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG,
+                        (groupInstanceId + "-" + listenerId).replaceAll("[^A-Za-z0-9._-]", "-"));
+                container.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+            });
+        }
+    }
+
+    private boolean isCooperativeRebalancing() {
+        return "cooperative".equalsIgnoreCase(environment.getProperty("app.consumer.rebalance-mode", "cooperative"));
+    }
+
+    // Empty: dynamic membership
+    private String groupInstanceId() {
+        return environment.getProperty("app.consumer.rebalance.group-instance-id", "");
+    }
+
+    /**
+     * Builds the DefaultErrorHandler shared by the record and batch listener container factories.
+     */
+    private DefaultErrorHandler createErrorHandler(KafkaTemplate<String, Object> kafkaTemplateConfig, MeterRegistry meterRegistry) {
         /**
          * Error handler that:
          * - Catches consumer exceptions
@@ -203,6 +523,16 @@ public class KafkaConsumerConfig {
                         new FixedBackOff(5000, 3)
                         //FixedBackOff is a retry policy used by Spring Kafka’s error handling mechanism to control how many times and how often a failed Kafka message should be retried before giving up.
                 );
+        configureFailedRecordProcessor(errorHandler, meterRegistry);
+
+        return errorHandler;
+    }
+
+    /**
+     * Exception classification, back off and metrics shared by the DefaultErrorHandler of the record / batch
+     * containers and the DefaultAfterRollbackProcessor of the exactly-once container.
+     */
+    private void configureFailedRecordProcessor(FailedRecordProcessor failedRecordProcessor, MeterRegistry meterRegistry) {
         /**
          * ------------------------- EXCEPTION CLASSIFICATION -------------------------
          *
@@ -230,7 +560,7 @@ public class KafkaConsumerConfig {
          * - Business rule violations
          * - Irrecoverable downstream errors
          */
-        errorHandler.addNotRetryableExceptions(
+        failedRecordProcessor.addNotRetryableExceptions(
                 NotRetryableException.class,      // Custom exception for permanent business failures
                 HttpServerErrorException.class    // Indicates non-recoverable HTTP server errors
         );
@@ -249,37 +579,39 @@ public class KafkaConsumerConfig {
          * - Network or timeout issues
          * - Downstream service unavailability
          */
-        errorHandler.addRetryableExceptions(
+        failedRecordProcessor.addRetryableExceptions(
                 RetryableException.class          // Custom exception for transient / recoverable failures
         );
 
         /**
-         * Factory responsible for creating Kafka listener containers.
-         *
-         * Supports:
-         * - Concurrent message processing
-         * - Partition-based parallelism
-         * - Custom error handling
-         */
-        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
-                new ConcurrentKafkaListenerContainerFactory<>();
-
-        /**
-         * Associates this listener factory with the consumer factory.
-         *
-         * This tells Spring how to create actual Kafka consumers.
+         * setBackOffFunction(...)
+         * ---------------------------------------------------------------------------
+         * While the downstream circuit breaker is OPEN the record did not fail by itself,
+         * so it must not use up its 3 retries and end up in the DLT.
+         * CircuitOpenException gets an unlimited back off instead; meanwhile the listener
+         * containers are paused (DownstreamCircuitListenerPauser) and the record is
+         * redelivered when the breaker lets trial calls through again.
+         * Returning null keeps the FixedBackOff above for every other exception.
          */
-        factory.setConsumerFactory(consumerFactory);
+        failedRecordProcessor.setBackOffFunction((record, exception) ->
+                causedByOpenCircuit(exception) ? new FixedBackOff(1000, FixedBackOff.UNLIMITED_ATTEMPTS) : null);
 
         /**
-         * Registers the common error handler.
-         *
-         * Any exception thrown during message consumption
-         * will be handled here.
+         * setRetryListeners(...)
+         * ---------------------------------------------------------------------------
+         * Counts every failed delivery attempt (by exception) and every record sent to the DLT,
+         * see ErrorHandlerMetrics for the meter names.
          */
-        factory.setCommonErrorHandler(errorHandler);
+        failedRecordProcessor.setRetryListeners(new ErrorHandlerMetrics(meterRegistry));
+    }
 
-        return factory;
+    private static boolean causedByOpenCircuit(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CircuitOpenException) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -288,61 +620,25 @@ public class KafkaConsumerConfig {
      * KafkaTemplate is used to publish messages to Kafka topics.
      * <p>
      * In this configuration:
-     * - It is mainly used to publish messages to Dead Letter Topics (DLT)
+     * - It is mainly used to publish messages to Dead Letter Topics (DLT), retry topics and DLT replays
      * - Can also be used for normal message production
+     * <p>
+     * It asks ProducerFactoryRegistry for the same configuration as the product publish path
+     * (KafkaProducerConfig.producerConfigs()), so both share one producer instead of running two with their own
+     * buffer memory, sender thread and broker connections. That factory is transactional (transaction-id-prefix),
+     * setAllowNonTransactional(true) sends dead letters with its shared non-transactional producer as before.
      */
     @Bean
     public KafkaTemplate<String, Object> kafkaTemplateConfig(
-            ProducerFactory<String, Object> producerFactoryConfig) {
+            ProducerFactoryRegistry producerFactoryRegistry, KafkaProducerConfig kafkaProducerConfig) {
 
-        return new KafkaTemplate<>(producerFactoryConfig);
+        KafkaTemplate<String, Object> kafkaTemplate = new KafkaTemplate<>(
+                producerFactoryRegistry.producerFactory("dead-letter", kafkaProducerConfig.producerConfigs()));
+        kafkaTemplate.setAllowNonTransactional(true);
+        return kafkaTemplate;
     }
 
-    /**
-     * ProducerFactory Bean
-     * --------------------
-     * Creates Kafka producer instances.
-     * <p>
-     * Used by KafkaTemplate to:
-     * - Serialize messages
-     * - Connect to Kafka brokers
-     * - Publish messages reliably
-     */
-    @Bean
-    public ProducerFactory<String, Object> producerFactoryConfig() {
-
-        // Holds Kafka producer configuration
-        Map<String, Object> config = new HashMap<>();
-
-        /**
-         * Kafka broker address for producer.
-         *
-         * Same broker can be used for both producer and consumer.
-         */
-        config.put(
-                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG,
-                environment.getProperty("spring.kafka.consumer.bootstrap-servers")
-        );
-
-        /**
-         * Serializes message VALUE (Java Object → JSON byte[])
-         */
-        config.put(
-                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
-                JsonSerializer.class
-        );
-
-        /**
-         * Serializes message KEY (String → byte[])
-         */
-        config.put(
-                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG,
-                StringSerializer.class
-        );
-
-        /**
-         * Creates Kafka ProducerFactory using above configuration.
-         */
-        return new DefaultKafkaProducerFactory<>(config);
+    private boolean isBinaryValueFormat() {
+        return "binary".equalsIgnoreCase(environment.getProperty("app.kafka.value-format", "json"));
     }
 }
@@ -1,13 +1,15 @@
 package com.ratnakar.kafka.config;
 
 import com.ratnakar.kafka.model.ProductCreatedEvent;
+import com.ratnakar.kafka.producer.ProducerFactoryRegistry;
+import com.ratnakar.kafka.tuning.ProducerTuningProfile;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.TopicBuilder;
-import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.transaction.KafkaTransactionManager;
@@ -22,14 +24,6 @@ public class KafkaProducerConfig {
     @Value("${spring.kafka.producer.bootstrap-servers}")
     public String bootstrapServers;
 
-    // Injects key serializer class name from properties file
-    @Value("${spring.kafka.producer.key-serializer}")
-    public String keySerializer;
-
-    // Injects value serializer class name from properties file
-    @Value("${spring.kafka.producer.value-serializer}")
-    public String valueSerializer;
-
     // Injects acknowledgment mode ("all", "1", "0") from properties
     @Value("${spring.kafka.producer.acks}")
     public String acks;
@@ -38,9 +32,9 @@ public class KafkaProducerConfig {
     @Value("${spring.kafka.producer.properties.delivery.timeout.ms}")
     public String deliveryTimeout;
 
-    // Injects linger time setting (wait time before batching messages)
-    @Value("${spring.kafka.producer.properties.linger.ms}")
-    public String linger;
+    // Batching profile (latency, balanced, throughput or adaptive), sets linger.ms, batch.size and compression.type
+    @Value("${app.producer.tuning.profile:latency}")
+    private String tuningProfile;
 
     // Injects request timeout setting in milliseconds
     @Value("${spring.kafka.producer.properties.request.timeout.ms}")
@@ -76,11 +70,12 @@ public class KafkaProducerConfig {
         // Kafka broker connection details (host:port)
         config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
 
-        // Serializer used to convert the key into byte[] before sending to Kafka
-        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, keySerializer);
+        // Names the producers (client.id product-1, product-2...) and tags their kafka.producer.* metrics (factory=product)
+        config.put(ProducerConfig.CLIENT_ID_CONFIG, "product");
 
-        // Serializer used to convert the value (ProductCreatedEvent) into JSON/byte[].
-        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, valueSerializer);
+        // Key and value serializers are not part of this map: ProducerFactoryRegistry gives every producer a String key
+        // serializer and a value serializer by runtime type (ProductCreatedEvent in app.kafka.value-format,
+        // byte[] unchanged, anything else JSON), so one producer can serve the publish and the dead letter paths.
 
         // Acknowledgement level (all replicas must confirm)
         config.put(ProducerConfig.ACKS_CONFIG, acks);
@@ -88,8 +83,9 @@ public class KafkaProducerConfig {
         // Maximum time allowed for a message to be delivered
         config.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, deliveryTimeout);
 
-        // Delay to wait before batching messages (0 means immediate send)
-        config.put(ProducerConfig.LINGER_MS_CONFIG, linger);
+        // Batching: how long to wait for more records (linger.ms), how big a batch may get (batch.size)
+        // and how batches are compressed (compression.type), see ProducerTuningProfile
+        config.putAll(ProducerTuningProfile.fromProperty(tuningProfile).producerConfigs());
 
         // Maximum time producer waits for broker response before timing out
         config.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, requestTimeout);
@@ -115,20 +111,34 @@ public class KafkaProducerConfig {
      * Creates a ProducerFactory bean.
      * ProducerFactory is responsible for creating Kafka Producers.
      * It uses the configuration map returned by producerConfigs().
+     * ProducerFactoryRegistry returns the same factory to every caller with this configuration: the dead letter
+     * template (KafkaConsumerConfig.kafkaTemplateConfig) shares its producer instead of running a second one.
+     * The registry binds the Kafka producer metrics (kafka.producer.*: record send rate, batch size,
+     * request latency, buffer usage...) of every producer it creates to the MeterRegistry, tagged factory=product.
+     * TunableProducerFactory behaves like DefaultKafkaProducerFactory, it only lets AdaptiveProducerTuner
+     * change the batching settings at runtime (app.producer.tuning.profile=adaptive).
      */
     @Bean
-    ProducerFactory<String, ProductCreatedEvent> producerFactory() {
-        return new DefaultKafkaProducerFactory<>(producerConfigs());
+    ProducerFactory<String, ProductCreatedEvent> producerFactory(ProducerFactoryRegistry producerFactoryRegistry) {
+        return producerFactoryRegistry.producerFactory("product", producerConfigs());
     }
 
     /**
      * Creates a KafkaTemplate bean.
      * KafkaTemplate is the main class used to send messages to Kafka topics.
      * It uses the producerFactory() to create producers internally.
+     * <p>
+     * producerFactory() is transactional (transaction-id-prefix), so by default every send() outside of a
+     * Kafka transaction fails with "No transaction is in process".
+     * setAllowNonTransactional(true) lets the direct publish paths (blocking, async, batch) use a plain idempotent
+     * producer, while executeInTransaction() (OutboxRelay) and @Transactional("kafkaTransactionManager") code
+     * still get a transactional one.
      */
     @Bean
-    KafkaTemplate<String, ProductCreatedEvent> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    KafkaTemplate<String, ProductCreatedEvent> kafkaTemplate(ProducerFactory<String, ProductCreatedEvent> producerFactory) {
+        KafkaTemplate<String, ProductCreatedEvent> kafkaTemplate = new KafkaTemplate<>(producerFactory);
+        kafkaTemplate.setAllowNonTransactional(true);
+        return kafkaTemplate;
     }
 
     /**
@@ -139,6 +149,8 @@ public class KafkaProducerConfig {
      * - Custom config: min.insync.replicas = 1
      * It returns a NewTopic object which Spring Boot will use to
      * auto-create the topic at application startup (if auto-creation is enabled).
+     * Only with app.topics.provisioning.enabled=false: otherwise TopicProvisioner creates and
+     * reconciles the topic from its declaration (app.topics.*).
      */
     /**
      * ------------------------------------------------------------
@@ -251,6 +263,7 @@ public class KafkaProducerConfig {
 
 
     @Bean
+    @ConditionalOnProperty(name = "app.topics.provisioning.enabled", havingValue = "false")
     public NewTopic createTopic() {
         return TopicBuilder
                 .name("product-created-events-topic")
@@ -0,0 +1,26 @@
+package com.ratnakar.kafka.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+@Configuration
+public class PersistenceConfig {
+
+    /**
+     * JPA transaction manager used by @Transactional methods (EventHandler processing, repository saves).
+     * <p>
+     * Setting spring.kafka.producer.transaction-id-prefix makes Spring Boot register a second
+     * TransactionManager (kafkaTransactionManager). Marking this one as @Primary keeps an unqualified
+     * @Transactional bound to the database, so all inserts of a transaction are flushed together
+     * and Hibernate can send them as JDBC batches (hibernate.jdbc.batch_size).
+     * Kafka transactions keep using kafkaTransactionManager / KafkaTemplate.executeInTransaction().
+     */
+    @Bean
+    @Primary
+    public JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+        return new JpaTransactionManager(entityManagerFactory);
+    }
+}
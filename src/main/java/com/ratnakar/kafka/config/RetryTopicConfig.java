@@ -0,0 +1,88 @@
+package com.ratnakar.kafka.config;
+
+import com.ratnakar.kafka.exception.CircuitOpenException;
+import com.ratnakar.kafka.exception.NotRetryableException;
+import com.ratnakar.kafka.metrics.RetryTopicMetrics;
+import com.ratnakar.kafka.retry.TieredBackOffPolicy;
+import com.ratnakar.kafka.service.ProductEventRecords;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.retrytopic.RetryTopicConfiguration;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationSupport;
+import org.springframework.util.backoff.FixedBackOff;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Duration;
+import java.util.List;
+
+/*
+Non-blocking retries (app.consumer.retry-mode=topics, record listener only).
+With the blocking FixedBackOff(5000, 3) one RetryableException holds its partition for up to 15 seconds and every
+record behind it waits. Here a failed record is committed on the main topic and republished to a delay topic instead:
+  product-created-events-topic -> ...-retry-5000 -> ...-retry-30000 -> ...-retry-300000 -> product-created-events-topic.DLT
+Each retry topic has its own consumer that pauses its partition until the record is due, so the main topic keeps
+flowing while a record waits. Delays come from app.consumer.retry-topics.delays (one tier per delay).
+Trade-off: a retried record is processed after records of the same key that arrived later, per-key order is lost
+for failed records.
+- NotRetryableException / HttpServerErrorException (and deserialization failures) go straight to the DLT
+- CircuitOpenException keeps the blocking, unlimited back off of the default error handler: the record did not fail
+  by itself and the containers are paused while the breaker is open (DownstreamCircuitListenerPauser)
+- the DLT is the same topic the blocking DeadLetterPublishingRecoverer writes to, nothing consumes it automatically
+- the retry topics and the DLT are created by TopicProvisioner (app.topics.*), or here with
+  app.consumer.retry-topics.partitions when app.topics.provisioning.enabled=false
+*/
+@Configuration
+@ConditionalOnExpression("'${app.consumer.retry-mode:blocking}' == 'topics' and '${app.consumer.listener-mode:record}' == 'record'")
+public class RetryTopicConfig extends RetryTopicConfigurationSupport {
+    private MeterRegistry meterRegistry;
+    private List<Duration> delays;
+    private boolean topicProvisioning;
+
+    public RetryTopicConfig(MeterRegistry meterRegistry,
+                            @Value("${app.consumer.retry-topics.delays:5s,30s,5m}") List<Duration> delays,
+                            @Value("${app.topics.provisioning.enabled:true}") boolean topicProvisioning) {
+        this.meterRegistry = meterRegistry;
+        this.delays = delays;
+        this.topicProvisioning = topicProvisioning;
+    }
+
+    @Bean
+    public RetryTopicConfiguration productCreatedRetryTopicConfiguration(
+            KafkaTemplate<String, Object> kafkaTemplateConfig,
+            @Value("${app.consumer.retry-topics.partitions:2}") int partitions) {
+        RetryTopicConfigurationBuilder builder = RetryTopicConfigurationBuilder.newInstance()
+                .includeTopic(ProductEventRecords.PRODUCT_CREATED_EVENTS_TOPIC)
+                .listenerFactory("kafkaListenerContainerFactory")
+                .customBackoff(new TieredBackOffPolicy(delays))
+                // first delivery + one attempt per tier
+                .maxAttempts(delays.size() + 1)
+                .notRetryOn(List.of(NotRetryableException.class, HttpServerErrorException.class))
+                .traversingCauses()
+                .dltSuffix(".DLT")
+                .autoStartDltHandler(false);
+        if (topicProvisioning) {
+            // TopicDeclarations declares <topic>-retry-<delay ms> and <topic>.DLT, sized from the main topic
+            builder.doNotAutoCreateRetryTopics();
+        } else {
+            builder.autoCreateTopicsWith(partitions, (short) 1);
+        }
+        return builder.create(kafkaTemplateConfig);
+    }
+
+    @Override
+    protected void configureBlockingRetries(BlockingRetriesConfigurer blockingRetries) {
+        blockingRetries
+                .retryOn(CircuitOpenException.class)
+                .backOff(new FixedBackOff(1000, FixedBackOff.UNLIMITED_ATTEMPTS));
+    }
+
+    @Override
+    protected void configureCustomizers(CustomizersConfigurer customizersConfigurer) {
+        customizersConfigurer.customizeErrorHandler(errorHandler -> errorHandler.setRetryListeners(new RetryTopicMetrics(meterRegistry)));
+    }
+}
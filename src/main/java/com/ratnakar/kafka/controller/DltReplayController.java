@@ -0,0 +1,49 @@
+package com.ratnakar.kafka.controller;
+
+import com.ratnakar.kafka.exception.ErrorMessage;
+import com.ratnakar.kafka.model.DltReplayRequest;
+import com.ratnakar.kafka.replay.DltReplayService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Date;
+
+/*
+Admin endpoints of the DLT replay (see DltReplayService), e.g.
+  curl -X POST localhost:8080/admin/dlt-replay -H 'Content-Type: application/json' \
+       -d '{"fromTime":"2024-05-01T00:00:00Z","exception":"RetryableException","ratePerSecond":200,"parallelism":2}'
+  curl localhost:8080/admin/dlt-replay          (progress)
+  curl -X DELETE localhost:8080/admin/dlt-replay (stop after the current poll, POST {} later resumes from the checkpoint)
+*/
+@RestController
+@RequestMapping("/admin/dlt-replay")
+public class DltReplayController {
+    DltReplayService dltReplayService;
+
+    public DltReplayController(DltReplayService dltReplayService) {
+        this.dltReplayService = dltReplayService;
+    }
+
+    @PostMapping
+    public ResponseEntity<Object> start(@RequestBody(required = false) DltReplayRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(dltReplayService.start(request != null ? request : new DltReplayRequest()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorMessage(new Date(), e.getMessage(), "/admin/dlt-replay"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ErrorMessage(new Date(), e.getMessage(), "/admin/dlt-replay"));
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<Object> status() {
+        return ResponseEntity.ok(dltReplayService.status());
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Object> stop() {
+        return ResponseEntity.ok(dltReplayService.stop());
+    }
+}
@@ -1,14 +1,30 @@
 package com.ratnakar.kafka.controller;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ratnakar.kafka.exception.ErrorMessage;
+import com.ratnakar.kafka.model.ProductBatchItemResult;
 import com.ratnakar.kafka.model.ProductRestModel;
 import com.ratnakar.kafka.service.ProductService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Slf4j
 @RestController
@@ -16,22 +32,145 @@ import java.util.Date;
 public class KafkaController {
 
     ProductService productService;
+    ObjectMapper objectMapper;
 
-    public KafkaController(ProductService productService) {
+    public KafkaController(ProductService productService, ObjectMapper objectMapper) {
         this.productService = productService;
+        this.objectMapper = objectMapper;
     }
 
+    // Upper bound of products accepted in one /products/batch request
+    @Value("${app.product.batch.max-size:50000}")
+    int batchMaxSize;
+
+    // "blocking" keeps the request thread until Kafka acknowledges the record, "async" releases it immediately,
+    // "outbox" stores the product and its event in the database and returns without touching Kafka,
+    // "transactional" releases it too and answers once the Kafka transaction holding the record is committed
+    @Value("${app.product.publish-mode:blocking}")
+    String publishMode;
+
+    /*
+    The declared return type is Object on purpose: Spring MVC picks the return value handler from the actual returned value.
+    - blocking mode returns a ResponseEntity and is written on the same Tomcat thread (no async dispatch overhead)
+    - async mode returns a CompletableFuture, Spring MVC starts async processing and frees the Tomcat thread,
+      the response is written when the producer's sender thread completes the future (broker ack)
+    - transactional mode also returns a CompletableFuture, completed by TransactionalBatchPublisher after the commit
+    */
     @PostMapping("/create")
-    public ResponseEntity<Object> createProduct(@RequestBody ProductRestModel productRestModel) {
+    public Object createProduct(@RequestBody ProductRestModel productRestModel) {
+        if ("outbox".equalsIgnoreCase(publishMode)) {
+            // Only a local DB transaction, the event is published to Kafka by OutboxRelay in the background
+            try {
+                return ResponseEntity.status(HttpStatus.CREATED).body(productService.createProductWithOutbox(productRestModel));
+            } catch (Exception e) {
+                return errorResponse(e);
+            }
+        }
+        if ("async".equalsIgnoreCase(publishMode) || "transactional".equalsIgnoreCase(publishMode)) {
+            CompletableFuture<String> productIdFuture = "async".equalsIgnoreCase(publishMode)
+                    ? productService.createProductAsync(productRestModel)
+                    : productService.createProductTransactional(productRestModel);
+            return productIdFuture
+                    .thenApply(productID -> ResponseEntity.status(HttpStatus.CREATED).body((Object) productID))
+                    .exceptionally(this::errorResponse);
+        }
         String productID = null;
         try {
             productID = productService.createProduct(productRestModel);
         } catch (Exception e) {
-            log.error(e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorMessage(new Date(), e.getMessage(), "/products/create"));
+            return errorResponse(e);
         }
         return ResponseEntity.status(HttpStatus.CREATED).body(productID);
     }
+
+    /*
+    Bulk creation from a JSON array: [{"title":...,"price":...,"quantity":...}, ...]
+    The array is read element by element with the streaming parser, so an oversized batch is rejected (413, nothing
+    published) as soon as element batchMaxSize + 1 is reached instead of after the whole body was bound to a List.
+    */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Object> createProducts(InputStream body) throws IOException {
+        List<ProductRestModel> productRestModels = new ArrayList<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return invalidBatch("Expected a JSON array of products");
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (productRestModels.size() >= batchMaxSize) {
+                    return batchTooLarge();
+                }
+                productRestModels.add(objectMapper.readValue(parser, ProductRestModel.class));
+            }
+        } catch (JsonProcessingException e) {
+            return invalidBatch("Invalid product JSON: " + e.getOriginalMessage());
+        }
+        return batchResponse(productService.createProducts(productRestModels));
+    }
+
+    /*
+    Bulk creation from an NDJSON stream (one product JSON object per line, Content-Type: application/x-ndjson).
+    Every line is handed to the producer (or stored in the outbox) as soon as it is read, so the first records are on
+    the wire while the rest of the upload is still arriving, and only the pending futures are kept, not the products.
+    A malformed line is reported as a failed item with its line index and does not reject the whole upload.
+    Past batchMaxSize products the remaining lines are not read: the earlier ones are already published, so instead of
+    a 413 the response is a 207 with a failed item at the first line over the limit.
+    */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Object> createProductsFromNdjson(InputStream body) throws IOException {
+        List<CompletableFuture<String>> productIdFutures = new ArrayList<>();
+        List<Integer> lineIndexes = new ArrayList<>();
+        List<ProductBatchItemResult> results = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        int lineIndex = 0;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isBlank()) {
+                if (productIdFutures.size() >= batchMaxSize) {
+                    results.add(new ProductBatchItemResult(lineIndex, null,
+                            "Batch exceeds the maximum of " + batchMaxSize + " products, this line and the following ones were not read"));
+                    break;
+                }
+                try {
+                    ProductRestModel productRestModel = objectMapper.readValue(line, ProductRestModel.class);
+                    productIdFutures.add(productService.createBatchItem(productRestModel));
+                    lineIndexes.add(lineIndex);
+                } catch (JsonProcessingException e) {
+                    results.add(new ProductBatchItemResult(lineIndex, null, "Invalid product JSON: " + e.getOriginalMessage()));
+                }
+            }
+            lineIndex++;
+        }
+        // Map the published items back to their line index in the uploaded stream
+        for (ProductBatchItemResult result : productService.awaitBatchItems(productIdFutures)) {
+            result.setIndex(lineIndexes.get(result.getIndex()));
+            results.add(result);
+        }
+        results.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+        return batchResponse(results);
+    }
+
+    // 201 when every product was acknowledged, 207 (Multi-Status) when at least one item failed
+    private ResponseEntity<Object> batchResponse(List<ProductBatchItemResult> results) {
+        boolean anyFailed = results.stream().anyMatch(result -> result.getError() != null);
+        return ResponseEntity.status(anyFailed ? HttpStatus.MULTI_STATUS : HttpStatus.CREATED).body(results);
+    }
+
+    private ResponseEntity<Object> batchTooLarge() {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .body(new ErrorMessage(new Date(), "Batch exceeds the maximum of " + batchMaxSize + " products", "/products/batch"));
+    }
+
+    private ResponseEntity<Object> invalidBatch(String message) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new ErrorMessage(new Date(), message, "/products/batch"));
+    }
+
+    private ResponseEntity<Object> errorResponse(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        log.error(cause.getMessage(), cause);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorMessage(new Date(), cause.getMessage(), "/products/create"));
+    }
+
     @GetMapping("/response/200")
     public ResponseEntity<String> successResponse() {
         return ResponseEntity
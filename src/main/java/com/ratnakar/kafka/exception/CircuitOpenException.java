@@ -0,0 +1,8 @@
+package com.ratnakar.kafka.exception;
+
+// Thrown without calling the downstream service while its circuit breaker is open
+public class CircuitOpenException extends RetryableException{
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
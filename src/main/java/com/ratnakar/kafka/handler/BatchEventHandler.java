@@ -0,0 +1,97 @@
+package com.ratnakar.kafka.handler;
+
+import com.ratnakar.kafka.client.DownstreamServiceClient;
+import com.ratnakar.kafka.idempotency.IdempotencyStore;
+import com.ratnakar.kafka.idempotency.ProcessedEventDeduplicator;
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+Batch listener (app.consumer.listener-mode=batch): receives all records of one poll at once.
+Per poll instead of per record:
+- ONE "messageId IN (...)" query to find the already processed messages (only for ids not answered by the dedup cache)
+- the downstream HTTP call only for the new messages
+- ONE IdempotencyStore.addAll of the processed messageIds (jpa store: one JDBC batch insert, plain JdbcTemplate or Hibernate
+  batching with app.idempotency.write-strategy=jpa; rocksdb store: one WriteBatch)
+When a record fails we store what was processed before it and throw BatchListenerFailedException with its index,
+the DefaultErrorHandler then commits the offsets before that record, retries / sends only that record to the DLT
+and redelivers the rest of the batch.
+*/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.consumer.listener-mode", havingValue = "batch")
+public class BatchEventHandler {
+    private DownstreamServiceClient downstreamServiceClient;
+    private ProcessedEventDeduplicator processedEventDeduplicator;
+    private IdempotencyStore idempotencyStore;
+
+    public BatchEventHandler(DownstreamServiceClient downstreamServiceClient,
+                             ProcessedEventDeduplicator processedEventDeduplicator,
+                             IdempotencyStore idempotencyStore) {
+        this.downstreamServiceClient = downstreamServiceClient;
+        this.processedEventDeduplicator = processedEventDeduplicator;
+        this.idempotencyStore = idempotencyStore;
+    }
+
+    @KafkaListener(topics = "product-created-events-topic", containerFactory = "batchKafkaListenerContainerFactory")
+    public void handle(List<ConsumerRecord<String, Object>> records) {
+        log.info("Received a batch of {} events", records.size());
+
+        List<String> messageIds = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, Object> record : records) {
+            messageIds.add(RecordPayloads.messageId(record));
+        }
+        // Check all messageIds of this poll at once: dedup cache first, then a single query for the rest
+        Set<String> alreadyProcessed = new HashSet<>(processedEventDeduplicator.findDuplicates(
+                messageIds.stream().filter(messageId -> messageId != null).toList()));
+
+        // productId by messageId, in processing order
+        Map<String, String> processed = new LinkedHashMap<>();
+        for (int index = 0; index < records.size(); index++) {
+            ConsumerRecord<String, Object> record = records.get(index);
+            String messageId = messageIds.get(index);
+            try {
+                ProductCreatedEvent productCreatedEvent = RecordPayloads.productCreatedEvent(record, messageId);
+                // add() returns false for messages processed before and for duplicates inside this same batch
+                if (!alreadyProcessed.add(messageId)) {
+                    log.info("Found a Duplicate message id: {}", messageId);
+                    continue;
+                }
+                downstreamServiceClient.notifyProductCreated(productCreatedEvent);
+                processed.put(messageId, productCreatedEvent.getProductId());
+            } catch (RuntimeException e) {
+                // Keep the work done for the records before the failed one, they will not be redelivered.
+                // A failing store write must not replace the record's failure: without the index the error handler
+                // would retry the whole batch and call downstream again for the records that already succeeded
+                try {
+                    saveProcessed(processed);
+                } catch (RuntimeException saveFailure) {
+                    log.error("Could not store the {} messageIds processed before index {}", processed.size(), index, saveFailure);
+                    e.addSuppressed(saveFailure);
+                }
+                throw new BatchListenerFailedException("Failed to process record at index " + index, e, index);
+            }
+        }
+        saveProcessed(processed);
+    }
+
+    private void saveProcessed(Map<String, String> processed) {
+        // Ids stored by another consumer in the meantime are skipped by the store
+        Set<String> skipped = idempotencyStore.addAll(processed);
+        skipped.forEach(messageId -> log.info("Found a Duplicate message id: {}", messageId));
+        processedEventDeduplicator.markProcessed(processed.keySet());
+        processed.clear();
+    }
+}
@@ -0,0 +1,52 @@
+package com.ratnakar.kafka.handler;
+
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+/*
+Exactly-once consume-process-produce listener (app.consumer.listener-mode=eos).
+Runs in exactlyOnceKafkaListenerContainerFactory: every poll is processed inside a Kafka transaction started by the
+container, the derived event is sent with exactlyOnceKafkaTemplate (joining that transaction) and the container adds
+the consumed offsets to the same transaction before committing. A redelivered record after a crash or rebalance
+belongs to an aborted transaction, so its earlier output is never visible to read_committed consumers and no
+processed_events lookup / insert is needed.
+Only Kafka writes are covered: this path deliberately skips the downstream HTTP call and the database, side effects
+outside Kafka would still need the idempotent record / batch / parallel listeners.
+*/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.consumer.listener-mode", havingValue = "eos")
+public class ExactlyOnceEventHandler {
+    private KafkaTemplate<String, Object> exactlyOnceKafkaTemplate;
+
+    @Value("${app.consumer.eos.output-topic:product-processed-events-topic}")
+    private String outputTopic;
+
+    public ExactlyOnceEventHandler(KafkaTemplate<String, Object> exactlyOnceKafkaTemplate) {
+        this.exactlyOnceKafkaTemplate = exactlyOnceKafkaTemplate;
+    }
+
+    @KafkaListener(topics = "product-created-events-topic", containerFactory = "exactlyOnceKafkaListenerContainerFactory")
+    public void handle(ConsumerRecord<String, ProductCreatedEvent> record) {
+        ProductCreatedEvent productCreatedEvent = record.value();
+        log.info("Forwarding event {} from {}-{}@{}", productCreatedEvent.getProductId(),
+                record.topic(), record.partition(), record.offset());
+
+        // Same key, so the derived events keep the per-product order of the input topic
+        ProducerRecord<String, Object> derived = new ProducerRecord<>(outputTopic, record.key(), productCreatedEvent);
+        Header messageId = record.headers().lastHeader("messageId");
+        if (messageId != null) {
+            derived.headers().add(messageId);
+        }
+        // No get(): the send is flushed by the transaction commit, a failed send makes the commit (and so the poll) fail
+        exactlyOnceKafkaTemplate.send(derived);
+    }
+}
@@ -0,0 +1,97 @@
+package com.ratnakar.kafka.handler;
+
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/*
+Per-key ordered parallel processing (app.consumer.listener-mode=parallel), in the spirit of Confluent's parallel consumer.
+Topic parallelism is capped by the partition count, and most of the time is spent waiting on the downstream HTTP call,
+so the records of one poll are fanned out to a worker pool:
+- records are grouped by key (productId), each key group is processed sequentially on one worker -> strict order per key
+- different keys run concurrently (virtual threads when spring.threads.virtual.enabled=true on Java 21+)
+- the poll completes when all groups are done; if records failed, the one with the LOWEST index in the poll is reported with
+  BatchListenerFailedException so offsets are only committed up to the last record before it. Everything before it is complete.
+  Records after it that were already processed are redelivered and skipped by the idempotency check.
+A key group stops at its first failure, so a later record of the same key is never processed ahead of a failed one.
+*/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.consumer.listener-mode", havingValue = "parallel")
+public class ParallelEventHandler {
+    private ProductCreatedEventProcessor productCreatedEventProcessor;
+    private SimpleAsyncTaskExecutor workerExecutor;
+
+    public ParallelEventHandler(ProductCreatedEventProcessor productCreatedEventProcessor, Environment environment,
+                                @Value("${app.consumer.parallel.max-concurrency:64}") int maxConcurrency) {
+        this.productCreatedEventProcessor = productCreatedEventProcessor;
+        this.workerExecutor = new SimpleAsyncTaskExecutor("parallel-event-");
+        // Virtual threads are only used when enabled AND supported by the running JVM
+        this.workerExecutor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+        // Upper bound of key groups processed at the same time, submitting more blocks the consumer thread (back pressure)
+        this.workerExecutor.setConcurrencyLimit(maxConcurrency);
+    }
+
+    @KafkaListener(topics = "product-created-events-topic", containerFactory = "batchKafkaListenerContainerFactory")
+    public void handle(List<ConsumerRecord<String, Object>> records) {
+        Map<String, List<Integer>> indexesByKey = new LinkedHashMap<>();
+        for (int index = 0; index < records.size(); index++) {
+            ConsumerRecord<String, Object> record = records.get(index);
+            // Records without a key have no ordering constraint, each one gets its own group
+            String orderingKey = record.key() != null
+                    ? record.key()
+                    : "no-key-" + record.partition() + "-" + record.offset();
+            indexesByKey.computeIfAbsent(orderingKey, key -> new ArrayList<>()).add(index);
+        }
+        log.info("Received a batch of {} events with {} distinct keys", records.size(), indexesByKey.size());
+
+        ConcurrentSkipListMap<Integer, RuntimeException> failures = new ConcurrentSkipListMap<>();
+        List<CompletableFuture<Void>> keyGroups = new ArrayList<>(indexesByKey.size());
+        for (List<Integer> indexes : indexesByKey.values()) {
+            keyGroups.add(CompletableFuture.runAsync(() -> processInOrder(records, indexes, failures), workerExecutor));
+        }
+        CompletableFuture.allOf(keyGroups.toArray(new CompletableFuture[0])).join();
+
+        if (!failures.isEmpty()) {
+            Map.Entry<Integer, RuntimeException> lowestFailure = failures.firstEntry();
+            throw new BatchListenerFailedException("Failed to process record at index " + lowestFailure.getKey(),
+                    lowestFailure.getValue(), lowestFailure.getKey());
+        }
+    }
+
+    private void processInOrder(List<ConsumerRecord<String, Object>> records, List<Integer> indexes,
+                                Map<Integer, RuntimeException> failures) {
+        for (int index : indexes) {
+            ConsumerRecord<String, Object> record = records.get(index);
+            try {
+                String messageId = RecordPayloads.messageId(record);
+                ProductCreatedEvent productCreatedEvent = RecordPayloads.productCreatedEvent(record, messageId);
+                productCreatedEventProcessor.process(productCreatedEvent, messageId);
+            } catch (RuntimeException e) {
+                failures.put(index, e);
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workerExecutor.close();
+    }
+}
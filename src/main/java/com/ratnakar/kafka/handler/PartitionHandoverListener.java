@@ -0,0 +1,195 @@
+package com.ratnakar.kafka.handler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/*
+Rebalance listener of the listener containers (KafkaConsumerConfig sets one per container factory).
+With app.consumer.rebalance-mode=cooperative a rebalance only revokes the partitions that move to another member,
+the consumer keeps processing the others while the group rebalances; with eager every member gives up all of its
+partitions and the whole group stops until the new assignment is in place.
+
+Hand-over of the revoked partitions, and only those:
+- in-flight work: the listeners finish the records of a poll before the next poll, and the rebalance callbacks run
+  inside poll(), so every record returned for a revoked partition has been processed or sought back by the error
+  handler (failed record, retry topic back off). The position of a revoked partition is the next record to process.
+- that position is committed synchronously before the partition is released, with the revocation time as commit
+  metadata, so the new owner starts exactly there and no processed record is delivered twice.
+  Not for the exactly-once container (commitRevoked=false): its offsets are committed inside the Kafka transaction.
+- lost partitions (session expired, cooperative only) already belong to another member, nothing is committed.
+
+Metrics, tagged with the consumer group:
+- kafka.consumer.rebalances            rebalances completed by a consumer (tag protocol)
+- kafka.consumer.rebalance.partitions  partitions assigned / revoked / lost (tag change)
+- kafka.consumer.rebalance.revoke      time to hand over the revoked partitions (commit included)
+- kafka.consumer.rebalance.stopped     time a consumer had no partition because of a rebalance: from the revocation
+                                       of its last partition to its next assignment (eager: every rebalance)
+- kafka.consumer.rebalance.handover    time a partition had no owner: from its revocation (commit metadata) to its
+                                       assignment, measured by the new owner, on this or another instance
+The Kafka client metrics kafka.consumer.coordinator.rebalance.* cover the join / sync rounds themselves.
+*/
+@Slf4j
+public class PartitionHandoverListener implements ConsumerAwareRebalanceListener {
+    private static final String REVOKED_AT = "revoked-at=";
+
+    private MeterRegistry meterRegistry;
+    private String protocol;
+    private boolean commitRevoked;
+    // Consumer -> time it lost its last partition (nanoTime); consumers are only touched by their own thread
+    private final Map<Consumer<?, ?>, Long> stoppedSince = Collections.synchronizedMap(new WeakHashMap<>());
+    // Consumer -> start of the revocation being handled
+    private final Map<Consumer<?, ?>, Long> revokeStarted = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public PartitionHandoverListener(MeterRegistry meterRegistry, String protocol, boolean commitRevoked) {
+        this.meterRegistry = meterRegistry;
+        this.protocol = protocol;
+        this.commitRevoked = commitRevoked;
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        revokeStarted.put(consumer, System.nanoTime());
+        partitionsCounter(consumer, "revoked").increment(partitions.size());
+        markStoppedIfNothingLeft(consumer, partitions);
+        if (commitRevoked) {
+            commitPositions(consumer, partitions);
+        }
+    }
+
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        Long started = revokeStarted.remove(consumer);
+        if (started != null) {
+            Timer.builder("kafka.consumer.rebalance.revoke")
+                    .description("Time to hand over the revoked partitions, offset commit included")
+                    .tag("group", group(consumer))
+                    .register(meterRegistry)
+                    .record(Duration.ofNanos(System.nanoTime() - started));
+        }
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        log.warn("Partitions lost (already reassigned, nothing committed): {}", partitions);
+        partitionsCounter(consumer, "lost").increment(partitions.size());
+        markStoppedIfNothingLeft(consumer, partitions);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        String group = group(consumer);
+        Counter.builder("kafka.consumer.rebalances")
+                .description("Rebalances completed by a consumer")
+                .tag("group", group)
+                .tag("protocol", protocol)
+                .register(meterRegistry)
+                .increment();
+        if (partitions.isEmpty()) {
+            return;
+        }
+        partitionsCounter(consumer, "assigned").increment(partitions.size());
+        Long stopped = stoppedSince.remove(consumer);
+        if (stopped != null) {
+            Timer.builder("kafka.consumer.rebalance.stopped")
+                    .description("Time a consumer had no partition because of a rebalance")
+                    .tag("group", group)
+                    .register(meterRegistry)
+                    .record(Duration.ofNanos(System.nanoTime() - stopped));
+        }
+        log.info("Partitions assigned: {}", partitions);
+        recordHandover(consumer, new HashSet<>(partitions));
+    }
+
+    private void commitPositions(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        String metadata = REVOKED_AT + System.currentTimeMillis();
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        try {
+            for (TopicPartition partition : partitions) {
+                offsets.put(partition, new OffsetAndMetadata(consumer.position(partition), metadata));
+            }
+            consumer.commitSync(offsets);
+            log.info("Partitions revoked, committed {}", offsets);
+        } catch (KafkaException e) {
+            // The container still commits the offsets it has acknowledged after this callback
+            log.warn("Could not commit the revoked partitions {}: {}", partitions, e.toString());
+        }
+    }
+
+    // Partition hand-over time, from the revocation time the previous owner put in the commit metadata.
+    // The stamp is cleared right away, so a later assignment (e.g. after a crash, without a revocation commit)
+    // does not measure from an old revocation
+    private void recordHandover(Consumer<?, ?> consumer, Set<TopicPartition> partitions) {
+        Map<TopicPartition, OffsetAndMetadata> committed;
+        try {
+            committed = consumer.committed(partitions);
+        } catch (KafkaException e) {
+            log.debug("Could not read the committed offsets of {}: {}", partitions, e.toString());
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Timer handover = Timer.builder("kafka.consumer.rebalance.handover")
+                .description("Time a partition had no owner, from its revocation to its next assignment")
+                .tag("group", group(consumer))
+                .register(meterRegistry);
+        Map<TopicPartition, OffsetAndMetadata> cleared = new HashMap<>();
+        committed.forEach((partition, offset) -> {
+            if (offset != null && offset.metadata() != null && offset.metadata().startsWith(REVOKED_AT)) {
+                long revokedAt = Long.parseLong(offset.metadata().substring(REVOKED_AT.length()));
+                // Clocks of different instances: a negative difference is recorded as 0
+                handover.record(Duration.ofMillis(Math.max(0, now - revokedAt)));
+                cleared.put(partition, new OffsetAndMetadata(offset.offset()));
+            }
+        });
+        // Not from the exactly-once container, its offsets are only committed in transactions
+        if (commitRevoked && !cleared.isEmpty()) {
+            try {
+                consumer.commitSync(cleared);
+            } catch (KafkaException e) {
+                log.debug("Could not clear the revocation stamp of {}: {}", cleared.keySet(), e.toString());
+            }
+        }
+    }
+
+    private void markStoppedIfNothingLeft(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        // The assignment still contains the partitions being revoked while the callback runs
+        Set<TopicPartition> remaining = new HashSet<>(consumer.assignment());
+        remaining.removeAll(partitions);
+        if (remaining.isEmpty()) {
+            stoppedSince.putIfAbsent(consumer, System.nanoTime());
+        }
+    }
+
+    private Counter partitionsCounter(Consumer<?, ?> consumer, String change) {
+        return Counter.builder("kafka.consumer.rebalance.partitions")
+                .description("Partitions assigned, revoked or lost by rebalances")
+                .tag("group", group(consumer))
+                .tag("change", change)
+                .register(meterRegistry);
+    }
+
+    private static String group(Consumer<?, ?> consumer) {
+        return consumer.groupMetadata().groupId();
+    }
+}
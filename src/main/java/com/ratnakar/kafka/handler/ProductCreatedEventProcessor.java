@@ -0,0 +1,58 @@
+package com.ratnakar.kafka.handler;
+
+import com.ratnakar.kafka.client.DownstreamServiceClient;
+import com.ratnakar.kafka.exception.NotRetryableException;
+import com.ratnakar.kafka.idempotency.IdempotencyStore;
+import com.ratnakar.kafka.idempotency.ProcessedEventDeduplicator;
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+/*
+Processing of ONE ProductCreatedEvent: idempotency check, downstream call and storing the processed messageId.
+Kept in its own bean so that @Transactional applies no matter which listener thread calls it
+(EventHandler on the consumer thread, ParallelEventHandler on its worker threads).
+*/
+@Slf4j
+@Component
+public class ProductCreatedEventProcessor {
+    private DownstreamServiceClient downstreamServiceClient;
+    private IdempotencyStore idempotencyStore;
+    private ProcessedEventDeduplicator processedEventDeduplicator;
+
+    public ProductCreatedEventProcessor(DownstreamServiceClient downstreamServiceClient, IdempotencyStore idempotencyStore,
+                                        ProcessedEventDeduplicator processedEventDeduplicator) {
+        this.downstreamServiceClient = downstreamServiceClient;
+        this.idempotencyStore = idempotencyStore;
+        this.processedEventDeduplicator = processedEventDeduplicator;
+    }
+
+    @Transactional
+    public void process(ProductCreatedEvent productCreatedEvent, String messageId) {
+        log.info("Received a new event: {} With product id as {}", productCreatedEvent.getTitle(), productCreatedEvent.getProductId());
+
+        // Check if this event is already processed before or not (recently processed ids are answered from memory)
+        if(processedEventDeduplicator.isDuplicate(messageId)){
+            log.info("Found a Duplicate message id: {}", messageId);
+            return;
+        }
+
+        downstreamServiceClient.notifyProductCreated(productCreatedEvent);
+
+        // To avoid the processing of same kafka message twice, I want to store the message in database
+        // Below is the code which stores the unique message Id into the DB, if same message is sent again then DB will throw exception
+        // With that exception we can Identify the duplicate message
+        // Save unique message Id into database table
+        try {
+            if (!idempotencyStore.add(messageId, productCreatedEvent.getProductId())) {
+                log.info("Found a Duplicate message id: {}", messageId);
+                return;
+            }
+            processedEventDeduplicator.markProcessed(messageId);
+        }catch (DataIntegrityViolationException Dx){
+            throw new NotRetryableException(Dx);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.ratnakar.kafka.handler;
+
+import com.ratnakar.kafka.exception.NotRetryableException;
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+Helpers for listeners that receive raw ConsumerRecords (batch and parallel modes) instead of
+@Payload / @Header bound arguments.
+*/
+final class RecordPayloads {
+    private static final LogAccessor LOG_ACCESSOR = new LogAccessor(RecordPayloads.class);
+
+    private RecordPayloads() {
+    }
+
+    static String messageId(ConsumerRecord<String, Object> record) {
+        Header header = record.headers().lastHeader("messageId");
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    // Throws NotRetryableException (straight to the DLT) for records that can never be processed
+    static ProductCreatedEvent productCreatedEvent(ConsumerRecord<String, Object> record, String messageId) {
+        // With raw records ErrorHandlingDeserializer leaves a null value and puts the failure into a header
+        DeserializationException deserializationException = SerializationUtils.getExceptionFromHeader(
+                record, SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOG_ACCESSOR);
+        if (deserializationException != null) {
+            throw new NotRetryableException(deserializationException);
+        }
+        if (messageId == null) {
+            throw new NotRetryableException("Record without messageId header at offset " + record.offset());
+        }
+        if (!(record.value() instanceof ProductCreatedEvent productCreatedEvent)) {
+            throw new NotRetryableException("Unexpected payload type at offset " + record.offset());
+        }
+        return productCreatedEvent;
+    }
+}
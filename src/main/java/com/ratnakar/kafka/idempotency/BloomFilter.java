@@ -0,0 +1,87 @@
+package com.ratnakar.kafka.idempotency;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+Lock free Bloom filter for messageIds.
+mightContain() == false means the messageId was DEFINITELY never added, true means "maybe" (false positives are possible).
+Bit array size and number of hash functions are derived from the expected insertions and the target false positive rate:
+  bits   = -n * ln(p) / (ln 2)^2
+  hashes = bits / n * ln 2
+The k bit indexes are combined from two 64 bit hashes in long arithmetic, so every bit of a filter larger than 2^31 bits
+(~220M insertions at 1%) can be reached.
+*/
+class BloomFilter {
+    private final AtomicLongArray words;
+    private final long numBits;
+    private final int numHashFunctions;
+
+    BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        if ((bits + 63) / 64 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bloom filter of " + bits + " bits is too large, lower expected-insertions");
+        }
+        this.words = new AtomicLongArray((int) ((bits + 63) / 64));
+        this.numBits = words.length() * 64L;
+        this.numHashFunctions = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+    }
+
+    void put(String messageId) {
+        long hash1 = hash64(messageId);
+        long hash2 = secondHash(hash1);
+        for (int i = 1; i <= numHashFunctions; i++) {
+            long bitIndex = bitIndex(hash1 + i * hash2);
+            int wordIndex = (int) (bitIndex >>> 6);
+            long mask = 1L << bitIndex;
+            long word;
+            do {
+                word = words.get(wordIndex);
+                if ((word & mask) != 0) {
+                    break;
+                }
+            } while (!words.compareAndSet(wordIndex, word, word | mask));
+        }
+    }
+
+    boolean mightContain(String messageId) {
+        long hash1 = hash64(messageId);
+        long hash2 = secondHash(hash1);
+        for (int i = 1; i <= numHashFunctions; i++) {
+            long bitIndex = bitIndex(hash1 + i * hash2);
+            if ((words.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long bitIndex(long combinedHash) {
+        // Kirsch-Mitzenmacher double hashing, floorMod keeps the index positive
+        return Math.floorMod(combinedHash, numBits);
+    }
+
+    // Independent second hash for the double hashing: the first one offset by the golden ratio and mixed again
+    private static long secondHash(long hash1) {
+        return mix64(hash1 + 0x9e3779b97f4a7c15L);
+    }
+
+    // 64 bit FNV-1a over the UTF-8 bytes followed by the murmur3 finalizer to spread the bits
+    private static long hash64(String messageId) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : messageId.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return mix64(hash);
+    }
+
+    private static long mix64(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,23 @@
+package com.ratnakar.kafka.idempotency;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// GET /actuator/dedup : hit / miss / Bloom filter counters, used to size the cache for the redelivery window
+@Component
+@Endpoint(id = "dedup")
+public class DedupStatsEndpoint {
+    private ProcessedEventDeduplicator processedEventDeduplicator;
+
+    public DedupStatsEndpoint(ProcessedEventDeduplicator processedEventDeduplicator) {
+        this.processedEventDeduplicator = processedEventDeduplicator;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        return processedEventDeduplicator.stats();
+    }
+}
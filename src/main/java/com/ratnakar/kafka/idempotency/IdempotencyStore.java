@@ -0,0 +1,33 @@
+package com.ratnakar.kafka.idempotency;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/*
+Storage of the processed messageIds behind ProcessedEventDeduplicator and the listeners.
+Selected with app.idempotency.store:
+- jpa     : JpaIdempotencyStore, the processed_events table (default)
+- rocksdb : RocksDbIdempotencyStore, an embedded disk-backed LSM store with a TTL per key
+*/
+public interface IdempotencyStore {
+
+    boolean contains(String messageId);
+
+    // Returns the subset of messageIds that are stored
+    Set<String> findExisting(Collection<String> messageIds);
+
+    /*
+    Stores one processed messageId, returns false when it was already stored.
+    Stores that only see the conflict when the surrounding transaction commits (jpa) throw it from the commit instead.
+    */
+    boolean add(String messageId, String productId);
+
+    // Stores productId by messageId, returns the messageIds that were already stored (skipped)
+    Set<String> addAll(Map<String, String> productIdsByMessageId);
+
+    // Most recently stored messageIds first, used to warm up the dedup Bloom filter. Empty when the store keeps no insertion order
+    Optional<List<String>> findRecentMessageIds(int limit);
+}
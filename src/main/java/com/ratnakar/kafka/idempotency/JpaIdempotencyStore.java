@@ -0,0 +1,93 @@
+package com.ratnakar.kafka.idempotency;
+
+import com.ratnakar.kafka.model.ProcessEventEntity;
+import com.ratnakar.kafka.repository.ProcessEventBatchRepository;
+import com.ratnakar.kafka.repository.ProcessEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/*
+processed_events table (app.idempotency.store=jpa).
+The unique constraint on message_id rejects a messageId stored concurrently by another consumer.
+Every lookup / insert is a database round trip and the unique B-tree index grows with every processed message.
+*/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.idempotency.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaIdempotencyStore implements IdempotencyStore {
+    private ProcessEventRepository processEventRepository;
+    private ProcessEventBatchRepository processEventBatchRepository;
+
+    // jdbc: JdbcTemplate.batchUpdate, jpa: ProcessEventRepository.saveAll flushed as Hibernate JDBC batches
+    @Value("${app.idempotency.write-strategy:jdbc}")
+    private String writeStrategy;
+
+    public JpaIdempotencyStore(ProcessEventRepository processEventRepository, ProcessEventBatchRepository processEventBatchRepository) {
+        this.processEventRepository = processEventRepository;
+        this.processEventBatchRepository = processEventBatchRepository;
+    }
+
+    @Override
+    public boolean contains(String messageId) {
+        return processEventRepository.findByMessageId(messageId) != null;
+    }
+
+    @Override
+    public Set<String> findExisting(Collection<String> messageIds) {
+        return processEventRepository.findProcessedMessageIds(messageIds);
+    }
+
+    // Joins the caller's transaction, a duplicate messageId fails the insert at the latest when it commits
+    @Override
+    public boolean add(String messageId, String productId) {
+        processEventRepository.save(new ProcessEventEntity(messageId, productId));
+        return true;
+    }
+
+    @Override
+    public Set<String> addAll(Map<String, String> productIdsByMessageId) {
+        List<ProcessEventEntity> processed = new ArrayList<>(productIdsByMessageId.size());
+        productIdsByMessageId.forEach((messageId, productId) -> processed.add(new ProcessEventEntity(messageId, productId)));
+        Set<String> skipped = new HashSet<>();
+        try {
+            insert(processed);
+        } catch (DataIntegrityViolationException e) {
+            // Another consumer stored one of these messageIds in the meantime, fall back to one insert per row
+            log.warn("Batch insert of processed events failed, inserting one by one: {}", e.getMessage());
+            for (ProcessEventEntity processEventEntity : processed) {
+                try {
+                    insert(List.of(processEventEntity));
+                } catch (DataIntegrityViolationException duplicate) {
+                    skipped.add(processEventEntity.getMessageId());
+                }
+            }
+        }
+        return skipped;
+    }
+
+    @Override
+    public Optional<List<String>> findRecentMessageIds(int limit) {
+        return Optional.of(processEventRepository.findRecentMessageIds(PageRequest.of(0, limit)));
+    }
+
+    private void insert(List<ProcessEventEntity> processEventEntities) {
+        if ("jpa".equalsIgnoreCase(writeStrategy)) {
+            // saveAll runs in one transaction, Hibernate groups the inserts into JDBC batches of hibernate.jdbc.batch_size
+            processEventRepository.saveAll(processEventEntities);
+        } else {
+            processEventBatchRepository.saveAll(processEventEntities);
+        }
+    }
+}
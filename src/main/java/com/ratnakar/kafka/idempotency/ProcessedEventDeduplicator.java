@@ -0,0 +1,282 @@
+package com.ratnakar.kafka.idempotency;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Dedup layer in front of the IdempotencyStore. A messageId is checked in this order:
+1) ProcessedMessageCache -> hit: duplicate, no store round trip
+2) BloomFilter (optional) -> "definitely not seen": new message, no store round trip
+3) IdempotencyStore -> the store (processed_events table or RocksDB) stays the source of truth
+With the jpa store the unique constraint on ProcessEventEntity.messageId is still the final authority when two consumers race on the same message.
+
+The Bloom filter only gives correct "definitely not seen" answers when it was told about EVERY processed id, a wrong one means
+a duplicate downstream call and a unique constraint violation (NotRetryableException -> DLT). So it is only used when it is authoritative:
+- it is seeded with the whole store at startup: a store holding more than warmup-rows ids leaves the filter off
+- it is never rotated: ids are only added, more than expected-insertions raise the false positive rate (more lookups), not the misses
+- this instance is the only consumer writing the store (app.dedup.bloom.single-instance): ids processed by another instance
+  (e.g. before a rebalance moved their partition here) never reach this filter
+Otherwise every cache miss is looked up in the store.
+
+Metrics: processed.events.lookup (timer of the database lookups, query single / bulk), processed.events.duplicates
+(duplicates found, source cache / database), dedup.cache.hits / dedup.cache.misses / dedup.bloom.negatives /
+dedup.bloom.false.positives counters and the dedup.cache.size gauge, the same numbers as the dedup actuator endpoint.
+*/
+@Slf4j
+@Component
+public class ProcessedEventDeduplicator {
+    private IdempotencyStore idempotencyStore;
+    private MeterRegistry meterRegistry;
+    private Timer singleLookupTimer;
+    private Timer bulkLookupTimer;
+
+    @Value("${app.dedup.enabled:true}")
+    private boolean enabled;
+    @Value("${app.dedup.cache.max-size:100000}")
+    private int cacheMaxSize;
+    @Value("${app.dedup.cache.ttl:PT30M}")
+    private Duration cacheTtl;
+    @Value("${app.dedup.bloom.enabled:false}")
+    private boolean bloomEnabled;
+    @Value("${app.dedup.bloom.expected-insertions:1000000}")
+    private long bloomExpectedInsertions;
+    @Value("${app.dedup.bloom.false-positive-rate:0.01}")
+    private double bloomFalsePositiveRate;
+    @Value("${app.dedup.bloom.warmup-rows:100000}")
+    private int bloomWarmupRows;
+    @Value("${app.dedup.bloom.single-instance:false}")
+    private boolean bloomSingleInstance;
+
+    private ProcessedMessageCache cache;
+    private volatile BloomFilter bloomFilter;
+    private volatile boolean bloomOverfilledLogged;
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder bloomNegatives = new LongAdder();
+    private final LongAdder bloomFalsePositives = new LongAdder();
+    private final LongAdder bloomInsertions = new LongAdder();
+    private final LongAdder databaseLookups = new LongAdder();
+    private final LongAdder databaseHits = new LongAdder();
+
+    public ProcessedEventDeduplicator(IdempotencyStore idempotencyStore, MeterRegistry meterRegistry) {
+        this.idempotencyStore = idempotencyStore;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        cache = new ProcessedMessageCache(cacheMaxSize, cacheTtl);
+        registerMeters();
+        if (enabled && bloomEnabled) {
+            initBloomFilter();
+        }
+    }
+
+    // Returns true when the message was already processed
+    public boolean isDuplicate(String messageId) {
+        if (!enabled) {
+            databaseLookups.increment();
+            if (findByMessageId(messageId)) {
+                databaseHits.increment();
+                return true;
+            }
+            return false;
+        }
+        if (cache.contains(messageId)) {
+            cacheHits.increment();
+            return true;
+        }
+        cacheMisses.increment();
+        if (definitelyNotSeen(messageId)) {
+            return false;
+        }
+        databaseLookups.increment();
+        if (findByMessageId(messageId)) {
+            databaseHits.increment();
+            cache.put(messageId);
+            return true;
+        }
+        countBloomFalsePositive();
+        return false;
+    }
+
+    // Bulk variant for the batch listener, returns the subset of messageIds that were already processed
+    public Set<String> findDuplicates(Collection<String> messageIds) {
+        if (!enabled) {
+            databaseLookups.add(messageIds.size());
+            Set<String> found = new HashSet<>(findProcessedMessageIds(messageIds));
+            databaseHits.add(found.size());
+            return found;
+        }
+        Set<String> duplicates = new HashSet<>();
+        List<String> toLookup = new ArrayList<>();
+        for (String messageId : messageIds) {
+            if (cache.contains(messageId)) {
+                cacheHits.increment();
+                duplicates.add(messageId);
+                continue;
+            }
+            cacheMisses.increment();
+            if (!definitelyNotSeen(messageId)) {
+                toLookup.add(messageId);
+            }
+        }
+        if (!toLookup.isEmpty()) {
+            databaseLookups.add(toLookup.size());
+            Set<String> found = findProcessedMessageIds(toLookup);
+            databaseHits.add(found.size());
+            found.forEach(cache::put);
+            duplicates.addAll(found);
+            if (bloomEnabled) {
+                bloomFalsePositives.add(toLookup.size() - found.size());
+            }
+        }
+        return duplicates;
+    }
+
+    /*
+    Remembers processed messageIds. When called inside a transaction the ids are only cached after the commit,
+    a rolled back insert must not make a redelivered message look like a duplicate.
+    */
+    public void markProcessed(Collection<String> messageIds) {
+        if (!enabled || messageIds.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<String> committedIds = List.copyOf(messageIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remember(committedIds);
+                }
+            });
+        } else {
+            remember(messageIds);
+        }
+    }
+
+    public void markProcessed(String messageId) {
+        markProcessed(List.of(messageId));
+    }
+
+    // Without ALL the already processed ids a "definitely not seen" answer would be wrong for redelivered messages
+    private void initBloomFilter() {
+        bloomEnabled = false;
+        if (!bloomSingleInstance) {
+            log.warn("Dedup Bloom filter disabled, it would miss the messageIds processed by other instances "
+                    + "(set app.dedup.bloom.single-instance=true when this is the only consumer of the store)");
+            return;
+        }
+        // One more row than the limit tells whether the whole store was read
+        Optional<List<String>> processedMessageIds = idempotencyStore.findRecentMessageIds(bloomWarmupRows + 1);
+        if (processedMessageIds.isEmpty()) {
+            // e.g. RocksDB: its own per-file Bloom filters already answer misses locally
+            log.warn("Dedup Bloom filter disabled, {} cannot list the processed messageIds",
+                    idempotencyStore.getClass().getSimpleName());
+            return;
+        }
+        if (processedMessageIds.get().size() > bloomWarmupRows) {
+            log.warn("Dedup Bloom filter disabled, the store holds more than app.dedup.bloom.warmup-rows={} messageIds",
+                    bloomWarmupRows);
+            return;
+        }
+        BloomFilter seeded = new BloomFilter(bloomExpectedInsertions, bloomFalsePositiveRate);
+        processedMessageIds.get().forEach(seeded::put);
+        bloomInsertions.add(processedMessageIds.get().size());
+        bloomFilter = seeded;
+        bloomEnabled = true;
+        log.info("Seeded dedup Bloom filter with all {} processed messageIds", processedMessageIds.get().size());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("cacheSize", cache.size());
+        stats.put("cacheMaxSize", cacheMaxSize);
+        stats.put("cacheTtl", cacheTtl.toString());
+        stats.put("cacheHits", cacheHits.sum());
+        stats.put("cacheMisses", cacheMisses.sum());
+        stats.put("bloomEnabled", bloomEnabled);
+        stats.put("bloomNegatives", bloomNegatives.sum());
+        stats.put("bloomFalsePositives", bloomFalsePositives.sum());
+        stats.put("bloomInsertions", bloomInsertions.sum());
+        stats.put("databaseLookups", databaseLookups.sum());
+        stats.put("databaseHits", databaseHits.sum());
+        return stats;
+    }
+
+    private boolean findByMessageId(String messageId) {
+        return singleLookupTimer.record(() -> idempotencyStore.contains(messageId));
+    }
+
+    private Set<String> findProcessedMessageIds(Collection<String> messageIds) {
+        return bulkLookupTimer.record(() -> idempotencyStore.findExisting(messageIds));
+    }
+
+    private void registerMeters() {
+        singleLookupTimer = Timer.builder("processed.events.lookup").tag("query", "single").register(meterRegistry);
+        bulkLookupTimer = Timer.builder("processed.events.lookup").tag("query", "bulk").register(meterRegistry);
+        FunctionCounter.builder("processed.events.duplicates", cacheHits, LongAdder::sum).tag("source", "cache").register(meterRegistry);
+        FunctionCounter.builder("processed.events.duplicates", databaseHits, LongAdder::sum).tag("source", "database").register(meterRegistry);
+        FunctionCounter.builder("dedup.cache.hits", cacheHits, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("dedup.cache.misses", cacheMisses, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("dedup.bloom.negatives", bloomNegatives, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("dedup.bloom.false.positives", bloomFalsePositives, LongAdder::sum).register(meterRegistry);
+        Gauge.builder("dedup.cache.size", cache, ProcessedMessageCache::size).register(meterRegistry);
+    }
+
+    private void remember(Collection<String> messageIds) {
+        BloomFilter filter = bloomFilter;
+        for (String messageId : messageIds) {
+            cache.put(messageId);
+            if (filter != null) {
+                filter.put(messageId);
+            }
+        }
+        if (filter != null) {
+            bloomInsertions.add(messageIds.size());
+            if (!bloomOverfilledLogged && bloomInsertions.sum() > bloomExpectedInsertions) {
+                bloomOverfilledLogged = true;
+                log.warn("Dedup Bloom filter holds more than app.dedup.bloom.expected-insertions={} messageIds, "
+                        + "its false positive rate (store lookups) grows from here", bloomExpectedInsertions);
+            }
+        }
+    }
+
+    private boolean definitelyNotSeen(String messageId) {
+        if (!bloomEnabled) {
+            return false;
+        }
+        if (bloomFilter.mightContain(messageId)) {
+            return false;
+        }
+        bloomNegatives.increment();
+        return true;
+    }
+
+    private void countBloomFalsePositive() {
+        if (bloomEnabled) {
+            bloomFalsePositives.increment();
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.ratnakar.kafka.idempotency;
+
+import com.ratnakar.kafka.repository.ProcessEventRepository;
+import com.ratnakar.kafka.repository.ProcessEventTableRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Retention of the processed_events idempotency table (app.idempotency.store=jpa).
+A messageId only has to be remembered while its record can still be delivered again: as long as it is on the topic
+(retention.ms) or on the DLT, from where DltReplayService can republish it with the same messageId.
+So the horizon is the longest retention.ms of app.idempotency.retention.topics plus a safety margin,
+unless app.idempotency.retention.horizon sets it explicitly. Rows processed before now - horizon are purged:
+
+delete          : keyed batches. The ids of the next batch-size expired rows are read through the processed_at index,
+                  then deleted by primary key in their own short transaction. Every statement locks a small, bounded
+                  set of rows, so the listeners' inserts and lookups are never blocked behind one huge delete.
+drop-partitions : PostgreSQL with processed_events range partitioned by day (db/postgresql/processed_events_partitioned.sql).
+                  Whole partitions older than the horizon are dropped, the partitions of the next days are created ahead.
+                  Rows stay up to one day longer than the horizon, but the purge costs nothing per row.
+
+Metrics: processed.events.purged (rows), processed.events.purge (run time), processed.events.partitions.dropped,
+processed.events.rows, processed.events.bytes (PostgreSQL), processed.events.oldest.age and processed.events.retention.horizon.
+*/
+@Slf4j
+@Component
+@ConditionalOnExpression("${app.idempotency.retention.enabled:true} and '${app.idempotency.store:jpa}' == 'jpa'")
+public class ProcessedEventsRetention {
+    public static final String STRATEGY_DELETE = "delete";
+    public static final String STRATEGY_DROP_PARTITIONS = "drop-partitions";
+
+    private ProcessEventRepository processEventRepository;
+    private ProcessEventTableRepository processEventTableRepository;
+    private KafkaAdmin kafkaAdmin;
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.idempotency.retention.strategy:delete}")
+    private String strategy;
+
+    // Empty: derived from the retention.ms of the topics below
+    @Value("${app.idempotency.retention.horizon:}")
+    private String horizon;
+
+    @Value("${app.idempotency.retention.topics:product-created-events-topic,product-created-events-topic.DLT}")
+    private List<String> topics;
+
+    @Value("${app.idempotency.retention.margin:P1D}")
+    private Duration margin;
+
+    // Used when the topic configuration cannot be read (broker down), nothing younger than this is ever purged.
+    // 14 days retention of the DLT (app.topics.<topic>.DLT.retention) plus the default margin
+    @Value("${app.idempotency.retention.fallback-horizon:P15D}")
+    private Duration fallbackHorizon;
+
+    @Value("${app.idempotency.retention.batch-size:1000}")
+    private int batchSize;
+
+    // Upper bound of batches deleted in one run, so that one run does not hold the scheduler thread forever
+    @Value("${app.idempotency.retention.max-batches-per-run:100}")
+    private int maxBatchesPerRun;
+
+    @Value("${app.idempotency.retention.partitions-ahead:3}")
+    private int partitionsAhead;
+
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong(-1);
+    private final AtomicLong oldestAgeMillis = new AtomicLong();
+    private final AtomicLong horizonMillis = new AtomicLong(-1);
+    // One client for the lifetime of the bean (created on the first run that reads the topic retention), not one per run
+    private AdminClient adminClient;
+
+    public ProcessedEventsRetention(ProcessEventRepository processEventRepository,
+                                    ProcessEventTableRepository processEventTableRepository,
+                                    KafkaAdmin kafkaAdmin, MeterRegistry meterRegistry) {
+        this.processEventRepository = processEventRepository;
+        this.processEventTableRepository = processEventTableRepository;
+        this.kafkaAdmin = kafkaAdmin;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("processed.events.rows", rows, AtomicLong::get)
+                .description("Rows in processed_events (estimate on PostgreSQL), refreshed by every retention run")
+                .register(meterRegistry);
+        if (processEventTableRepository.isPostgres()) {
+            Gauge.builder("processed.events.bytes", bytes, AtomicLong::get)
+                    .description("Size of processed_events with its indexes and partitions")
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+        }
+        TimeGauge.builder("processed.events.oldest.age", oldestAgeMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Age of the oldest processed_events row")
+                .register(meterRegistry);
+        TimeGauge.builder("processed.events.retention.horizon", horizonMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Rows older than this are purged, -1 while retention is infinite")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.retention.interval:PT10M}")
+    public void purge() {
+        Duration retentionHorizon = resolveHorizon();
+        if (retentionHorizon != null) {
+            horizonMillis.set(retentionHorizon.toMillis());
+            Instant cutoff = Instant.now().minus(retentionHorizon);
+            String runStrategy = effectiveStrategy();
+            long purged = Timer.builder("processed.events.purge")
+                    .tag("strategy", runStrategy)
+                    .register(meterRegistry)
+                    .record(() -> STRATEGY_DROP_PARTITIONS.equals(runStrategy) ? dropExpiredPartitions(cutoff) : deleteExpired(cutoff));
+            if (purged > 0) {
+                log.info("Purged {} processed events older than {} ({})", purged, cutoff, runStrategy);
+            }
+        } else {
+            horizonMillis.set(-1);
+        }
+        refreshTableStats();
+    }
+
+    private long deleteExpired(Instant cutoff) {
+        Counter purgedCounter = purgedCounter(STRATEGY_DELETE);
+        long deleted = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<Long> ids = processEventRepository.findIdsProcessedBefore(cutoff, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            int count = processEventRepository.deleteByIds(ids);
+            deleted += count;
+            purgedCounter.increment(count);
+            if (ids.size() < batchSize) {
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    private long dropExpiredPartitions(Instant cutoff) {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        for (int day = 0; day <= partitionsAhead; day++) {
+            processEventTableRepository.createPartition(today.plusDays(day));
+        }
+
+        Counter purgedCounter = purgedCounter(STRATEGY_DROP_PARTITIONS);
+        Counter droppedCounter = meterRegistry.counter("processed.events.partitions.dropped");
+        long purged = 0;
+        for (Map.Entry<LocalDate, String> partition : processEventTableRepository.findPartitions().entrySet()) {
+            // Oldest first: stop at the first partition that still holds rows inside the horizon
+            Instant partitionEnd = partition.getKey().plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+            if (partitionEnd.isAfter(cutoff)) {
+                break;
+            }
+            long partitionRows = processEventTableRepository.estimatePartitionRows(partition.getValue());
+            processEventTableRepository.dropPartition(partition.getValue());
+            purged += partitionRows;
+            purgedCounter.increment(partitionRows);
+            droppedCounter.increment();
+            log.info("Dropped processed_events partition {} (~{} rows)", partition.getValue(), partitionRows);
+        }
+        return purged;
+    }
+
+    private String effectiveStrategy() {
+        if (STRATEGY_DROP_PARTITIONS.equals(strategy)) {
+            if (processEventTableRepository.isPartitioned()) {
+                return STRATEGY_DROP_PARTITIONS;
+            }
+            log.warn("processed_events is not a partitioned PostgreSQL table, purging with keyed deletes instead");
+        }
+        return STRATEGY_DELETE;
+    }
+
+    // Explicit horizon, or the longest topic retention plus the margin. null = a topic keeps its records forever, nothing is purged
+    private Duration resolveHorizon() {
+        if (StringUtils.hasText(horizon)) {
+            return Duration.parse(horizon);
+        }
+        try {
+            Duration topicRetention = longestTopicRetention();
+            if (topicRetention == null) {
+                log.debug("Infinite retention on {}, processed events are kept", topics);
+                return null;
+            }
+            return topicRetention.plus(margin);
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Could not read the retention of {}, using the fallback horizon {}: {}", topics, fallbackHorizon, e.toString());
+            return fallbackHorizon;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallbackHorizon;
+        }
+    }
+
+    private Duration longestTopicRetention() throws ExecutionException, InterruptedException, TimeoutException {
+        List<ConfigResource> resources = topics.stream()
+                .map(topic -> new ConfigResource(ConfigResource.Type.TOPIC, topic))
+                .toList();
+        long longestMillis = -1;
+        Map<ConfigResource, KafkaFuture<Config>> configs = adminClient().describeConfigs(resources).values();
+        for (Map.Entry<ConfigResource, KafkaFuture<Config>> topicConfig : configs.entrySet()) {
+            Config config;
+            try {
+                config = topicConfig.getValue().get(10, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UnknownTopicOrPartitionException) {
+                    // e.g. the DLT before the first dead letter, it holds nothing that could be replayed
+                    continue;
+                }
+                throw e;
+            }
+            ConfigEntry retention = config.get(TopicConfig.RETENTION_MS_CONFIG);
+            long retentionMillis = Long.parseLong(retention.value());
+            if (retentionMillis < 0) {
+                return null;
+            }
+            longestMillis = Math.max(longestMillis, retentionMillis);
+        }
+        // None of the topics exists yet: no known retention, stay on the safe side
+        return Duration.ofMillis(longestMillis >= 0 ? longestMillis : fallbackHorizon.minus(margin).toMillis());
+    }
+
+    private synchronized AdminClient adminClient() {
+        if (adminClient == null) {
+            adminClient = AdminClient.create(kafkaAdmin.getConfigurationProperties());
+        }
+        return adminClient;
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        if (adminClient != null) {
+            adminClient.close(Duration.ofSeconds(10));
+            adminClient = null;
+        }
+    }
+
+    private void refreshTableStats() {
+        rows.set(processEventTableRepository.estimateRowCount());
+        bytes.set(processEventTableRepository.totalBytes());
+        Instant oldest = processEventRepository.findOldestProcessedAt();
+        oldestAgeMillis.set(oldest != null ? Duration.between(oldest, Instant.now()).toMillis() : 0);
+    }
+
+    private Counter purgedCounter(String purgeStrategy) {
+        return meterRegistry.counter("processed.events.purged", "strategy", purgeStrategy);
+    }
+}
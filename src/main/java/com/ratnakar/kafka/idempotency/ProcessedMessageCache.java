@@ -0,0 +1,72 @@
+package com.ratnakar.kafka.idempotency;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+Bounded, thread safe cache of recently processed messageIds with a time to live.
+- Lookups and inserts go to a ConcurrentHashMap (messageId -> expiry time), no global lock on the hot path.
+- Insertion order is kept in a queue, when the cache is over maxSize or the oldest entry is expired
+  the oldest entries are evicted first (FIFO). Only one thread evicts at a time, the others skip.
+The TTL should cover the redelivery window (retries + rebalance + restart), older messageIds fall back to the database.
+*/
+class ProcessedMessageCache {
+    private final ConcurrentHashMap<String, Long> expiryByMessageId = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final int maxSize;
+    private final long ttlNanos;
+
+    ProcessedMessageCache(int maxSize, Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    boolean contains(String messageId) {
+        Long expiresAt = expiryByMessageId.get(messageId);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt - System.nanoTime() <= 0) {
+            expiryByMessageId.remove(messageId, expiresAt);
+            return false;
+        }
+        return true;
+    }
+
+    void put(String messageId) {
+        long now = System.nanoTime();
+        if (expiryByMessageId.put(messageId, now + ttlNanos) == null) {
+            insertionOrder.add(messageId);
+        }
+        evict(now);
+    }
+
+    int size() {
+        return expiryByMessageId.size();
+    }
+
+    private void evict(long now) {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            String oldest;
+            while ((oldest = insertionOrder.peek()) != null) {
+                Long expiresAt = expiryByMessageId.get(oldest);
+                boolean expired = expiresAt == null || expiresAt - now <= 0;
+                if (!expired && expiryByMessageId.size() <= maxSize) {
+                    break;
+                }
+                insertionOrder.poll();
+                if (expiresAt != null) {
+                    expiryByMessageId.remove(oldest, expiresAt);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.ratnakar.kafka.idempotency;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.CompressionType;
+import org.rocksdb.LRUCache;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.TtlDB;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+Embedded RocksDB store (app.idempotency.store=rocksdb): messageId -> productId in a local log-structured merge tree.
+- writes are appends to the WAL and the memtable, so inserts stay cheap no matter how many ids are stored
+- lookups are answered by the block cache or by at most one block read per level, the per-file Bloom filters skip
+  the files that cannot contain the id, so the cost stays flat at hundreds of millions of messageIds
+- TtlDB stamps every key with its write time and drops it in compaction once it is older than the ttl, the store
+  never grows beyond ttl * message rate (an expired key may still be found until compaction, which is harmless)
+The store is local to this instance: use it when partitions stay on the same instance (single instance, static
+membership) or when the ttl covers only the redelivery window, a message processed by another instance before a
+rebalance is not known here. Writes go to the WAL without fsync, a process crash loses nothing, a power loss can
+lose the last writes, which only turns those messages into redeliveries.
+*/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.idempotency.store", havingValue = "rocksdb")
+public class RocksDbIdempotencyStore implements IdempotencyStore {
+    // add() and addAll() are check-then-put, the stripes make them atomic per messageId without one global lock
+    private static final int LOCK_STRIPES = 64;
+
+    @Value("${app.idempotency.rocksdb.path:./data/processed-events}")
+    private String path;
+    @Value("${app.idempotency.rocksdb.ttl:P7D}")
+    private Duration ttl;
+    @Value("${app.idempotency.rocksdb.block-cache-size:64MB}")
+    private DataSize blockCacheSize;
+
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private Options options;
+    private LRUCache blockCache;
+    private org.rocksdb.BloomFilter filterPolicy;
+    private WriteOptions writeOptions;
+    private TtlDB db;
+
+    public RocksDbIdempotencyStore() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    // Only for benchmarks and tools that run outside the Spring context
+    public RocksDbIdempotencyStore(String path, Duration ttl, DataSize blockCacheSize) {
+        this();
+        this.path = path;
+        this.ttl = ttl;
+        this.blockCacheSize = blockCacheSize;
+    }
+
+    @PostConstruct
+    public void open() throws Exception {
+        RocksDB.loadLibrary();
+        Files.createDirectories(Path.of(path));
+        blockCache = new LRUCache(blockCacheSize.toBytes());
+        // 10 bits per key: ~1% of the lookups for a missing id read a block they did not need
+        filterPolicy = new org.rocksdb.BloomFilter(10, false);
+        options = new Options()
+                .setCreateIfMissing(true)
+                .setCompressionType(CompressionType.LZ4_COMPRESSION)
+                .setTableFormatConfig(new BlockBasedTableConfig()
+                        .setBlockCache(blockCache)
+                        .setFilterPolicy(filterPolicy)
+                        .setCacheIndexAndFilterBlocks(true)
+                        .setPinL0FilterAndIndexBlocksInCache(true));
+        writeOptions = new WriteOptions().setSync(false);
+        db = TtlDB.open(options, path, (int) ttl.toSeconds(), false);
+        log.info("Opened RocksDB idempotency store at {} (ttl {})", path, ttl);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (db != null) {
+            db.close();
+        }
+        if (writeOptions != null) {
+            writeOptions.close();
+        }
+        if (options != null) {
+            options.close();
+        }
+        if (blockCache != null) {
+            blockCache.close();
+        }
+        if (filterPolicy != null) {
+            filterPolicy.close();
+        }
+    }
+
+    @Override
+    public boolean contains(String messageId) {
+        try {
+            return db.get(key(messageId)) != null;
+        } catch (RocksDBException e) {
+            throw new IllegalStateException("RocksDB lookup failed", e);
+        }
+    }
+
+    @Override
+    public Set<String> findExisting(Collection<String> messageIds) {
+        List<String> ids = new ArrayList<>(messageIds);
+        List<byte[]> keys = new ArrayList<>(ids.size());
+        ids.forEach(messageId -> keys.add(key(messageId)));
+        try {
+            List<byte[]> values = db.multiGetAsList(keys);
+            Set<String> existing = new HashSet<>();
+            for (int i = 0; i < ids.size(); i++) {
+                if (values.get(i) != null) {
+                    existing.add(ids.get(i));
+                }
+            }
+            return existing;
+        } catch (RocksDBException e) {
+            throw new IllegalStateException("RocksDB lookup failed", e);
+        }
+    }
+
+    @Override
+    public boolean add(String messageId, String productId) {
+        byte[] key = key(messageId);
+        ReentrantLock lock = locks[stripe(messageId)];
+        lock.lock();
+        try {
+            if (db.get(key) != null) {
+                return false;
+            }
+            db.put(writeOptions, key, productId.getBytes(StandardCharsets.UTF_8));
+            return true;
+        } catch (RocksDBException e) {
+            throw new IllegalStateException("RocksDB write failed", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+    The new ids of the batch are written with ONE WriteBatch (one WAL append).
+    The stripes of all the batch's ids are held from the lookup to the write, so a concurrent add() / addAll() of the
+    same id cannot slip in between. They are taken in ascending stripe order: two batches sharing stripes always
+    lock them in the same order and cannot deadlock.
+    */
+    @Override
+    public Set<String> addAll(Map<String, String> productIdsByMessageId) {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        productIdsByMessageId.keySet().forEach(messageId -> stripes.add(stripe(messageId)));
+        List<ReentrantLock> held = new ArrayList<>(stripes.size());
+        try {
+            for (int stripe : stripes) {
+                locks[stripe].lock();
+                held.add(locks[stripe]);
+            }
+            Set<String> skipped = findExisting(productIdsByMessageId.keySet());
+            Map<String, String> toWrite = new LinkedHashMap<>(productIdsByMessageId);
+            toWrite.keySet().removeAll(skipped);
+            if (toWrite.isEmpty()) {
+                return skipped;
+            }
+            try (WriteBatch writeBatch = new WriteBatch()) {
+                for (Map.Entry<String, String> entry : toWrite.entrySet()) {
+                    writeBatch.put(key(entry.getKey()), entry.getValue().getBytes(StandardCharsets.UTF_8));
+                }
+                db.write(writeOptions, writeBatch);
+            } catch (RocksDBException e) {
+                throw new IllegalStateException("RocksDB write failed", e);
+            }
+            return skipped;
+        } finally {
+            for (int i = held.size() - 1; i >= 0; i--) {
+                held.get(i).unlock();
+            }
+        }
+    }
+
+    // Keys are ordered by messageId, not by insertion time
+    @Override
+    public Optional<List<String>> findRecentMessageIds(int limit) {
+        return Optional.empty();
+    }
+
+    private static int stripe(String messageId) {
+        return Math.floorMod(messageId.hashCode(), LOCK_STRIPES);
+    }
+
+    private static byte[] key(String messageId) {
+        return messageId.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,56 @@
+package com.ratnakar.kafka.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.kafka.listener.RetryListener;
+
+/*
+RetryListener of the DefaultErrorHandler (KafkaConsumerConfig.createErrorHandler):
+- kafka.consumer.delivery.failures : every failed delivery attempt, tagged with the exception thrown by the listener
+                                     (failures - dead letters = deliveries that were retried)
+- kafka.consumer.dead.letters      : records handed to the DeadLetterPublishingRecoverer, outcome published / failed
+*/
+public class ErrorHandlerMetrics implements RetryListener {
+    public static final String DELIVERY_FAILURES = "kafka.consumer.delivery.failures";
+    public static final String DEAD_LETTERS = "kafka.consumer.dead.letters";
+
+    private MeterRegistry meterRegistry;
+    private Counter deadLettersPublished;
+    private Counter deadLettersFailed;
+
+    public ErrorHandlerMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.deadLettersPublished = Counter.builder(DEAD_LETTERS).tag("outcome", "published").register(meterRegistry);
+        this.deadLettersFailed = Counter.builder(DEAD_LETTERS).tag("outcome", "failed").register(meterRegistry);
+    }
+
+    @Override
+    public void failedDelivery(ConsumerRecord<?, ?> record, Exception ex, int deliveryAttempt) {
+        Counter.builder(DELIVERY_FAILURES)
+                .tag("topic", record.topic())
+                .tag("exception", listenerException(ex).getClass().getSimpleName())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    @Override
+    public void recovered(ConsumerRecord<?, ?> record, Exception ex) {
+        deadLettersPublished.increment();
+    }
+
+    @Override
+    public void recoveryFailed(ConsumerRecord<?, ?> record, Exception original, Exception failure) {
+        deadLettersFailed.increment();
+    }
+
+    // The container wraps whatever the listener threw into a ListenerExecutionFailedException
+    private static Throwable listenerException(Exception ex) {
+        Throwable exception = ex;
+        while (exception instanceof ListenerExecutionFailedException && exception.getCause() != null) {
+            exception = exception.getCause();
+        }
+        return exception;
+    }
+}
@@ -0,0 +1,173 @@
+package com.ratnakar.kafka.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+Processing time of each poll, set as record interceptor (record / eos listeners) or batch interceptor (batch / parallel)
+on the listener container factories by KafkaConsumerConfig.
+The container calls setupThreadState() before every poll and clearThreadState() once the records of the poll are done,
+so a poll is timed from the first record handed to the listener (EventHandler, BatchEventHandler, ...) to the end of
+the last one, error handler back offs included: the time that has to stay below max.poll.interval.ms.
+- kafka.consumer.poll.processing  time to process the records of one poll
+- kafka.consumer.poll.records     records per poll
+- kafka.consumer.poll.bytes       serialized key + value bytes per poll
+all tagged with the consumer group. AdaptiveConsumerTuner reads the totals of its interval with takeWindow().
+*/
+@Component
+public class PollProcessingMetrics implements RecordInterceptor<String, Object>, BatchInterceptor<String, Object> {
+    public static final String POLL_TIMER = "kafka.consumer.poll.processing";
+
+    private MeterRegistry meterRegistry;
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+    // Poll being processed by the current consumer thread
+    private final ThreadLocal<Poll> currentPoll = ThreadLocal.withInitial(Poll::new);
+    private Window window = new Window();
+
+    public PollProcessingMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public ConsumerRecord<String, Object> intercept(ConsumerRecord<String, Object> record, Consumer<String, Object> consumer) {
+        Poll poll = currentPoll.get();
+        if (poll.records == 0) {
+            poll.start(consumer);
+        }
+        poll.add(record);
+        return record;
+    }
+
+    @Override
+    public ConsumerRecords<String, Object> intercept(ConsumerRecords<String, Object> records, Consumer<String, Object> consumer) {
+        Poll poll = currentPoll.get();
+        poll.start(consumer);
+        records.forEach(poll::add);
+        return records;
+    }
+
+    @Override
+    public void setupThreadState(Consumer<?, ?> consumer) {
+        currentPoll.get().records = 0;
+    }
+
+    @Override
+    public void clearThreadState(Consumer<?, ?> consumer) {
+        Poll poll = currentPoll.get();
+        if (poll.records == 0) {
+            return;
+        }
+        long elapsed = System.nanoTime() - poll.started;
+        Meters groupMeters = meters.computeIfAbsent(poll.group, this::register);
+        groupMeters.processing.record(elapsed, TimeUnit.NANOSECONDS);
+        groupMeters.records.record(poll.records);
+        groupMeters.bytes.record(poll.bytes);
+        synchronized (this) {
+            window.add(elapsed, poll.records, poll.bytes);
+        }
+        poll.records = 0;
+    }
+
+    // Totals of the polls finished since the previous call
+    public synchronized Window takeWindow() {
+        Window taken = window;
+        window = new Window();
+        return taken;
+    }
+
+    private Meters register(String group) {
+        return new Meters(
+                Timer.builder(POLL_TIMER)
+                        .description("Time to process the records of one poll, must stay below max.poll.interval.ms")
+                        .tag("group", group)
+                        .register(meterRegistry),
+                DistributionSummary.builder("kafka.consumer.poll.records")
+                        .description("Records per poll")
+                        .tag("group", group)
+                        .register(meterRegistry),
+                DistributionSummary.builder("kafka.consumer.poll.bytes")
+                        .description("Serialized bytes per poll")
+                        .baseUnit("bytes")
+                        .tag("group", group)
+                        .register(meterRegistry));
+    }
+
+    private static class Meters {
+        private final Timer processing;
+        private final DistributionSummary records;
+        private final DistributionSummary bytes;
+
+        private Meters(Timer processing, DistributionSummary records, DistributionSummary bytes) {
+            this.processing = processing;
+            this.records = records;
+            this.bytes = bytes;
+        }
+    }
+
+    private static class Poll {
+        private String group;
+        private long started;
+        private int records;
+        private long bytes;
+
+        private void start(Consumer<?, ?> consumer) {
+            group = consumer.groupMetadata().groupId();
+            started = System.nanoTime();
+            records = 0;
+            bytes = 0;
+        }
+
+        private void add(ConsumerRecord<?, ?> record) {
+            records++;
+            bytes += Math.max(0, record.serializedKeySize()) + Math.max(0, record.serializedValueSize());
+        }
+    }
+
+    public static class Window {
+        private long polls;
+        private long records;
+        private long bytes;
+        private long totalNanos;
+        private long maxNanos;
+
+        private void add(long nanos, int pollRecords, long pollBytes) {
+            polls++;
+            records += pollRecords;
+            bytes += pollBytes;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        public long getPolls() {
+            return polls;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        // Longest poll of the window
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.ratnakar.kafka.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+Producer side stage timers, tagged with the publish path (single, batch, outbox) and the outcome (success, failure):
+- product.publish.send : the KafkaTemplate.send() call on the calling thread = serialization, partitioning and the append
+                         to the producer buffer (plus any max.block.ms wait for metadata or buffer memory)
+- product.publish.ack  : from the end of send() until the broker acknowledged the record (acks=all)
+A growing send time points at the client (serializer, full buffer), a growing ack time at the network or the broker.
+*/
+@Component
+public class PublishMetrics {
+    public static final String SEND_TIMER = "product.publish.send";
+    public static final String ACK_TIMER = "product.publish.ack";
+
+    private MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public PublishMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <K, V> CompletableFuture<SendResult<K, V>> timeSend(String path, Supplier<CompletableFuture<SendResult<K, V>>> send) {
+        long start = System.nanoTime();
+        CompletableFuture<SendResult<K, V>> future;
+        try {
+            future = send.get();
+        } catch (RuntimeException e) {
+            timer(SEND_TIMER, path, "failure").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        long sent = System.nanoTime();
+        timer(SEND_TIMER, path, "success").record(sent - start, TimeUnit.NANOSECONDS);
+        future.whenComplete((result, ex) ->
+                timer(ACK_TIMER, path, ex == null ? "success" : "failure").record(System.nanoTime() - sent, TimeUnit.NANOSECONDS));
+        return future;
+    }
+
+    private Timer timer(String name, String path, String outcome) {
+        return timers.computeIfAbsent(name + '|' + path + '|' + outcome, key -> Timer.builder(name)
+                .tag("path", path)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,42 @@
+package com.ratnakar.kafka.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+/*
+RetryListener of the error handlers the retry topic support creates (app.consumer.retry-mode=topics).
+With non-blocking retries every failed record is "recovered" right away by forwarding it to the next tier, so the
+counters are tagged with the tier (topic) the record failed in:
+- kafka.consumer.delivery.failures{topic}       : failed attempts per tier (inherited from ErrorHandlerMetrics)
+- kafka.consumer.retry.forwarded{tier, outcome} : records forwarded from that tier to the next retry topic, or to the
+                                                  DLT when it is the last tier
+*/
+public class RetryTopicMetrics extends ErrorHandlerMetrics {
+    public static final String FORWARDED = "kafka.consumer.retry.forwarded";
+
+    private MeterRegistry meterRegistry;
+
+    public RetryTopicMetrics(MeterRegistry meterRegistry) {
+        super(meterRegistry);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void recovered(ConsumerRecord<?, ?> record, Exception ex) {
+        forwarded(record, "published");
+    }
+
+    @Override
+    public void recoveryFailed(ConsumerRecord<?, ?> record, Exception original, Exception failure) {
+        forwarded(record, "failed");
+    }
+
+    private void forwarded(ConsumerRecord<?, ?> record, String outcome) {
+        Counter.builder(FORWARDED)
+                .tag("tier", record.topic())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,77 @@
+package com.ratnakar.kafka.model;
+
+import java.time.Instant;
+
+// Body of POST /admin/dlt-replay, every field is optional
+public class DltReplayRequest {
+    // Start every DLT partition at this offset...
+    private Long fromOffset;
+    // ...or at the first record written at / after this time. Without both the replay resumes from its checkpoint
+    private Instant fromTime;
+    // Stop at the first record written after this time (default: the end of the DLT when the replay starts)
+    private Instant toTime;
+    // Only replay records whose exception (kafka_dlt-exception-fqcn / -cause-fqcn header) contains this text
+    private String exception;
+    // Only replay records with this key (productId)
+    private String key;
+    // Records re-published per second over all workers (token bucket), default app.replay.rate-per-second
+    private Double ratePerSecond;
+    // Number of workers, each one reads its own share of the DLT partitions, default app.replay.parallelism
+    private Integer parallelism;
+
+    public Long getFromOffset() {
+        return fromOffset;
+    }
+
+    public void setFromOffset(Long fromOffset) {
+        this.fromOffset = fromOffset;
+    }
+
+    public Instant getFromTime() {
+        return fromTime;
+    }
+
+    public void setFromTime(Instant fromTime) {
+        this.fromTime = fromTime;
+    }
+
+    public Instant getToTime() {
+        return toTime;
+    }
+
+    public void setToTime(Instant toTime) {
+        this.toTime = toTime;
+    }
+
+    public String getException() {
+        return exception;
+    }
+
+    public void setException(String exception) {
+        this.exception = exception;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public Double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public void setRatePerSecond(Double ratePerSecond) {
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    public Integer getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(Integer parallelism) {
+        this.parallelism = parallelism;
+    }
+}
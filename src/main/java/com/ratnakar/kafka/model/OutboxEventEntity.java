@@ -0,0 +1,108 @@
+package com.ratnakar.kafka.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/*
+One row per ProductCreatedEvent waiting to be published (transactional outbox).
+Written in the same local DB transaction as the ProductEntity, published by OutboxRelay in id order.
+*/
+@Entity
+@Table(name = "product_outbox", indexes = @Index(name = "idx_product_outbox_sent_at", columnList = "sentAt, id"))
+public class OutboxEventEntity implements Serializable {
+    private static final long serialVersionUID = 5471182930458772011L;
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_outbox_seq")
+    @SequenceGenerator(name = "product_outbox_seq", sequenceName = "product_outbox_seq", allocationSize = 50)
+    private long id;
+    @Column(nullable = false)
+    private String productId;
+    @Column(nullable = false, unique = true)
+    private String messageId;
+    private String title;
+    private BigDecimal price;
+    private Integer quantity;
+    @Column(nullable = false)
+    private Instant createdAt;
+    // null until the relay committed the Kafka transaction containing this event
+    private Instant sentAt;
+
+    public OutboxEventEntity() {
+    }
+
+    public OutboxEventEntity(String productId, String messageId, String title, BigDecimal price, Integer quantity) {
+        this.productId = productId;
+        this.messageId = messageId;
+        this.title = title;
+        this.price = price;
+        this.quantity = quantity;
+        this.createdAt = Instant.now();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(String messageId) {
+        this.messageId = messageId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(Instant sentAt) {
+        this.sentAt = sentAt;
+    }
+}
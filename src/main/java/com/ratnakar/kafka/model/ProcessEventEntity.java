@@ -3,18 +3,29 @@ package com.ratnakar.kafka.model;
 import jakarta.persistence.*;
 
 import java.io.Serializable;
+import java.time.Instant;
 
 @Entity
-@Table(name = "processed_events")
+// processed_at is indexed for the retention purge (ProcessedEventsRetention), which selects the expired rows by it
+@Table(name = "processed_events", indexes = @Index(name = "idx_processed_events_processed_at", columnList = "processed_at"))
 public class ProcessEventEntity implements Serializable {
     private static final long serialVersionUID = 3687553269742697084L;
+    // Number of ids reserved per sequence call (sequence increment). Hibernate's pooled optimizer hands them out in memory,
+    // so a batch of inserts costs one sequence round trip per ID_ALLOCATION_SIZE rows instead of one per row.
+    public static final int ID_ALLOCATION_SIZE = 50;
+    public static final String ID_SEQUENCE_NAME = "processed_events_seq";
+
+    // Named sequence so that the JDBC batch insert (ProcessEventBatchRepository) can draw ids from the same pool as Hibernate
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE_NAME)
+    @SequenceGenerator(name = ID_SEQUENCE_NAME, sequenceName = ID_SEQUENCE_NAME, allocationSize = ID_ALLOCATION_SIZE)
     private long id;
     @Column(nullable = false, unique = true)
     private String messageId;
     @Column(nullable = false)
     private String productId;
+    @Column(nullable = false)
+    private Instant processedAt = Instant.now();
 
     public ProcessEventEntity() {
     }
@@ -48,12 +59,21 @@ public class ProcessEventEntity implements Serializable {
         this.productId = productId;
     }
 
+    public Instant getProcessedAt() {
+        return processedAt;
+    }
+
+    public void setProcessedAt(Instant processedAt) {
+        this.processedAt = processedAt;
+    }
+
     @Override
     public String toString() {
         return "ProcessEventEntity{" +
                 "id=" + id +
                 ", messageId='" + messageId + '\'' +
                 ", productId='" + productId + '\'' +
+                ", processedAt=" + processedAt +
                 '}';
     }
 }
@@ -0,0 +1,43 @@
+package com.ratnakar.kafka.model;
+
+public class ProductBatchItemResult {
+    // Position of the product in the request body (array index or NDJSON line number, starting at 0)
+    private int index;
+    // Generated product id, null when the item could not be published
+    private String productId;
+    // Failure reason, null when the item was acknowledged by Kafka
+    private String error;
+
+    public ProductBatchItemResult() {
+    }
+
+    public ProductBatchItemResult(int index, String productId, String error) {
+        this.index = index;
+        this.productId = productId;
+        this.error = error;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,84 @@
+package com.ratnakar.kafka.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/*
+The productId is assigned by the application (UUID), so Spring Data cannot tell a new entity from its id:
+save() would merge() it and run a SELECT by id before every insert. Persistable.isNew() reports a freshly constructed
+entity as new, save() then calls persist() and only the INSERT is sent; loaded or persisted entities are not new.
+*/
+@Entity
+@Table(name = "products")
+public class ProductEntity implements Serializable, Persistable<String> {
+    private static final long serialVersionUID = -2186452374611236417L;
+    @Id
+    private String productId;
+    @Column(nullable = false)
+    private String title;
+    private BigDecimal price;
+    private Integer quantity;
+    @Transient
+    private boolean newEntity = true;
+
+    public ProductEntity() {
+    }
+
+    public ProductEntity(String productId, String title, BigDecimal price, Integer quantity) {
+        this.productId = productId;
+        this.title = title;
+        this.price = price;
+        this.quantity = quantity;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    @Override
+    public String getId() {
+        return productId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newEntity = false;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
@@ -0,0 +1,197 @@
+package com.ratnakar.kafka.producer;
+
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import com.ratnakar.kafka.serialization.ProductCreatedEventSerializer;
+import com.ratnakar.kafka.tuning.TunableProducerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.MicrometerProducerListener;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+One producer factory per distinct effective producer configuration.
+Every KafkaProducer has its own buffer.memory, sender thread and broker connections. The product publish path
+and the DLT / retry topic / DLT replay path used to build one factory each, so every instance ran (at least) two
+producers with identical settings. Callers now ask the registry with their configuration map; an equal map
+(transactional.id prefix included) returns the factory that already exists, so those paths share one producer:
+- non-transactional sends (blocking / async publish, dead letters, retry topic forwarding, DLT replay) all go through
+  the single shared producer of that factory (KafkaTemplate.setAllowNonTransactional(true))
+- transactions (outbox relay, transaction batching) take a producer from the factory's transactional pool
+A different configuration (the exactly-once pipeline with its own transactional.id prefix) gets its own factory.
+
+All factories write String keys and pick the value serializer by the runtime type of the value:
+byte[] unchanged (payload of a record that failed deserialization), ProductCreatedEvent in app.kafka.value-format,
+anything else as JSON, so any registered factory can send any record of this application.
+
+Producers are tagged with their factory: client.id = <factory name>-<n>, and the kafka.producer.* metrics carry factory=<name>
+(kafka.producer.buffer.available.bytes, kafka.producer.buffer.total.bytes, kafka.producer.requests.in.flight, ...).
+kafka.producer.registry.factories and kafka.producer.registry.producers{factory} count the factories and live producers,
+GET /actuator/producers lists them with their users, buffer usage and in-flight requests.
+*/
+@Slf4j
+@Component
+public class ProducerFactoryRegistry implements DisposableBean {
+    private static final String PRODUCER_METRICS_GROUP = "producer-metrics";
+
+    private MeterRegistry meterRegistry;
+    private boolean binaryValueFormat;
+    // Effective configuration -> factory, in registration order
+    private final Map<Map<String, String>, RegisteredFactory> factories = new LinkedHashMap<>();
+
+    public ProducerFactoryRegistry(MeterRegistry meterRegistry, @Value("${app.kafka.value-format:json}") String valueFormat) {
+        this.meterRegistry = meterRegistry;
+        this.binaryValueFormat = "binary".equalsIgnoreCase(valueFormat);
+        Gauge.builder("kafka.producer.registry.factories", this, registry -> registry.factoryCount())
+                .description("Producer factories, one per distinct effective producer configuration")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the factory for this configuration, creating it on first use.
+     * The factory is named after the client.id of the configuration, or else after its first user;
+     * the name is the client.id prefix of its producers and the factory tag of their metrics.
+     * The value type is only a compile time view: the value serializer accepts any value, see the class comment.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <V> TunableProducerFactory<String, V> producerFactory(String user, Map<String, Object> configs) {
+        Map<String, String> effectiveConfig = effectiveConfig(configs);
+        RegisteredFactory registered = factories.get(effectiveConfig);
+        if (registered == null) {
+            String name = configs.get(ProducerConfig.CLIENT_ID_CONFIG) instanceof String clientId ? clientId : user;
+            registered = new RegisteredFactory(name, createFactory(name, configs));
+            factories.put(effectiveConfig, registered);
+            log.info("Producer factory '{}' created for {}", name, user);
+        } else {
+            log.info("Producer factory '{}' shared with {} (same effective configuration)", registered.name, user);
+        }
+        registered.users.add(user);
+        return (TunableProducerFactory<String, V>) registered.factory;
+    }
+
+    public synchronized List<Map<String, Object>> describe() {
+        List<Map<String, Object>> description = new ArrayList<>();
+        for (RegisteredFactory registered : factories.values()) {
+            Map<String, Object> factory = new LinkedHashMap<>();
+            factory.put("name", registered.name);
+            factory.put("users", List.copyOf(registered.users));
+            factory.put("transactional", registered.factory.transactionCapable());
+            List<Map<String, Object>> producers = new ArrayList<>();
+            registered.producers.forEach((id, producer) -> producers.add(describe(id, producer)));
+            factory.put("producers", producers);
+            description.add(factory);
+        }
+        return description;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        // The factories that are also beans are destroyed by the context as well, destroy() is idempotent
+        factories.values().forEach(registered -> registered.factory.destroy());
+    }
+
+    private synchronized int factoryCount() {
+        return factories.size();
+    }
+
+    private TunableProducerFactory<String, Object> createFactory(String name, Map<String, Object> configs) {
+        Map<String, Object> factoryConfigs = new HashMap<>(configs);
+        factoryConfigs.put(ProducerConfig.CLIENT_ID_CONFIG, name);
+        TunableProducerFactory<String, Object> factory =
+                new TunableProducerFactory<>(factoryConfigs, StringSerializer::new, this::valueSerializer);
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry, List.of(Tag.of("factory", name))));
+        return factory;
+    }
+
+    private Serializer<Object> valueSerializer() {
+        Map<Class<?>, Serializer<?>> valueSerializers = new LinkedHashMap<>();
+        valueSerializers.put(byte[].class, new ByteArraySerializer());
+        valueSerializers.put(ProductCreatedEvent.class, binaryValueFormat ? new ProductCreatedEventSerializer() : new JsonSerializer<>());
+        valueSerializers.put(Object.class, new JsonSerializer<>());
+        return new DelegatingByTypeSerializer(valueSerializers, true);
+    }
+
+    // Sorted, string valued copy: equal settings compare equal whatever map type and value types (5 vs "5") they came in.
+    // Serializer settings are ignored, the registry always uses the serializers above
+    private static Map<String, String> effectiveConfig(Map<String, Object> configs) {
+        Map<String, String> effectiveConfig = new TreeMap<>();
+        configs.forEach((key, value) -> {
+            if (!ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG.equals(key) && !ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG.equals(key)
+                    && value != null) {
+                effectiveConfig.put(key, value instanceof Class<?> type ? type.getName() : value.toString());
+            }
+        });
+        return effectiveConfig;
+    }
+
+    private static Map<String, Object> describe(String id, Producer<?, ?> producer) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("id", id);
+        double totalBytes = producerMetric(producer, "buffer-total-bytes");
+        double availableBytes = producerMetric(producer, "buffer-available-bytes");
+        description.put("bufferTotalBytes", (long) totalBytes);
+        description.put("bufferUsedBytes", (long) (totalBytes - availableBytes));
+        description.put("requestsInFlight", (long) producerMetric(producer, "requests-in-flight"));
+        description.put("waitingThreads", (long) producerMetric(producer, "waiting-threads"));
+        return description;
+    }
+
+    private static double producerMetric(Producer<?, ?> producer, String name) {
+        for (Map.Entry<MetricName, ? extends Metric> metric : producer.metrics().entrySet()) {
+            if (metric.getKey().name().equals(name) && metric.getKey().group().equals(PRODUCER_METRICS_GROUP)
+                    && metric.getValue().metricValue() instanceof Number value) {
+                return value.doubleValue();
+            }
+        }
+        return Double.NaN;
+    }
+
+    private final class RegisteredFactory implements ProducerFactory.Listener<String, Object> {
+        private final String name;
+        private final TunableProducerFactory<String, Object> factory;
+        private final List<String> users = new ArrayList<>();
+        // Live producers of this factory: the shared one, pooled transactional ones, those of retired tuning generations
+        private final Map<String, Producer<String, Object>> producers = new ConcurrentHashMap<>();
+
+        private RegisteredFactory(String name, TunableProducerFactory<String, Object> factory) {
+            this.name = name;
+            this.factory = factory;
+            factory.addListener(this);
+            Gauge.builder("kafka.producer.registry.producers", producers, Map::size)
+                    .description("Live producers of the factory")
+                    .tag("factory", name)
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public void producerAdded(String id, Producer<String, Object> producer) {
+            producers.put(id, producer);
+        }
+
+        @Override
+        public void producerRemoved(String id, Producer<String, Object> producer) {
+            producers.remove(id);
+        }
+    }
+}
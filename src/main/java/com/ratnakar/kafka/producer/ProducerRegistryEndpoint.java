@@ -0,0 +1,24 @@
+package com.ratnakar.kafka.producer;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+// GET /actuator/producers : producer factories with their users and the buffer usage / in-flight requests of every live producer
+@Component
+@Endpoint(id = "producers")
+public class ProducerRegistryEndpoint {
+    private ProducerFactoryRegistry producerFactoryRegistry;
+
+    public ProducerRegistryEndpoint(ProducerFactoryRegistry producerFactoryRegistry) {
+        this.producerFactoryRegistry = producerFactoryRegistry;
+    }
+
+    @ReadOperation
+    public List<Map<String, Object>> producers() {
+        return producerFactoryRegistry.describe();
+    }
+}
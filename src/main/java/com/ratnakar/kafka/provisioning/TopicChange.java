@@ -0,0 +1,72 @@
+package com.ratnakar.kafka.provisioning;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.common.KafkaFuture;
+
+import java.util.function.Function;
+
+// One difference between a declared topic and the topic on the broker, as planned / applied by TopicProvisioner
+public class TopicChange {
+    public enum Action {
+        // Topic does not exist
+        CREATE,
+        // Fewer partitions than declared
+        ADD_PARTITIONS,
+        // A declared config differs from the topic's value
+        ALTER_CONFIG,
+        // Cannot be reconciled through the admin client (shrinking partitions, changing the replication factor)
+        MANUAL
+    }
+
+    private final String topic;
+    private final Action action;
+    private final String detail;
+    // Admin client call that makes the change, null for MANUAL
+    private final Function<Admin, KafkaFuture<Void>> operation;
+    private boolean applied;
+    private String error;
+
+    public TopicChange(String topic, Action action, String detail, Function<Admin, KafkaFuture<Void>> operation) {
+        this.topic = topic;
+        this.action = action;
+        this.detail = detail;
+        this.operation = operation;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    Function<Admin, KafkaFuture<Void>> operation() {
+        return operation;
+    }
+
+    public boolean isApplied() {
+        return applied;
+    }
+
+    public void setApplied(boolean applied) {
+        this.applied = applied;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return action + " " + topic + ": " + detail + (error != null ? " (failed: " + error + ")" : "");
+    }
+}
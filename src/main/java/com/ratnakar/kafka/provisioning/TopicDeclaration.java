@@ -0,0 +1,55 @@
+package com.ratnakar.kafka.provisioning;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Desired state of one topic, computed by TopicDeclarations from app.topics.* and reconciled by TopicProvisioner
+public class TopicDeclaration {
+    private final String name;
+    private final int partitions;
+    private final short replicationFactor;
+    // Only the declared topic configs, every other config keeps the broker default / its current value
+    private final Map<String, String> configs;
+    // How the partition count was derived, shown with the plan
+    private final String sizing;
+
+    public TopicDeclaration(String name, int partitions, short replicationFactor, Map<String, String> configs, String sizing) {
+        this.name = name;
+        this.partitions = partitions;
+        this.replicationFactor = replicationFactor;
+        this.configs = Collections.unmodifiableMap(new TreeMap<>(configs));
+        this.sizing = sizing;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public short getReplicationFactor() {
+        return replicationFactor;
+    }
+
+    public Map<String, String> getConfigs() {
+        return configs;
+    }
+
+    public String getSizing() {
+        return sizing;
+    }
+
+    @Override
+    public String toString() {
+        return "TopicDeclaration{" +
+                "name='" + name + '\'' +
+                ", partitions=" + partitions +
+                ", replicationFactor=" + replicationFactor +
+                ", configs=" + configs +
+                ", sizing='" + sizing + '\'' +
+                '}';
+    }
+}
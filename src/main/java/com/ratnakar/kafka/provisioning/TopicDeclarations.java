@@ -0,0 +1,150 @@
+package com.ratnakar.kafka.provisioning;
+
+import com.ratnakar.kafka.service.ProductEventRecords;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+Computes the desired topics from the declarations in app.topics.* (see application.properties).
+Every declared topic is sized from what it has to carry rather than from a hardcoded partition count:
+  partitions = max(ceil(target-throughput / provisioning.partition-throughput), consumer-parallelism)
+- partition-throughput is the MB/s one partition sustains end to end (producer + consumer), measure it with the
+  load harness; target-throughput is the peak MB/s the topic has to absorb
+- consumer-parallelism is the largest number of consumers the group should be able to scale out to,
+  a partition is consumed by one consumer of the group at a time
+- an explicit partitions value overrides the computation
+retention, segment-size, compacted, replication-factor and min-insync-replicas become topic configs; a config
+that is not declared is not managed (broker default / whatever the topic has).
+
+Topics derived from a declared topic are declared with it:
+- <topic>.DLT, settings under app.topics.<topic>.DLT.*
+- the retry topics <topic>-retry-<delay ms> of RetryTopicConfig (app.consumer.retry-mode=topics, product topic only),
+  one per app.consumer.retry-topics.delays entry, settings shared under app.topics.<topic>.retry.*
+- the output topic of the exactly-once pipeline (app.consumer.listener-mode=eos, product topic only),
+  settings under app.topics.<output topic>.*
+DeadLetterPublishingRecoverer and the retry topic forwarding publish a failed record to the SAME partition number
+on the destination topic, so a derived topic never gets fewer partitions than the topic it is derived from.
+*/
+@Component
+@ConditionalOnProperty(name = "app.topics.provisioning.enabled", havingValue = "true", matchIfMissing = true)
+public class TopicDeclarations {
+    private static final String PREFIX = "app.topics.";
+    private static final String DLT_SUFFIX = ".DLT";
+
+    private Environment environment;
+    private DataSize partitionThroughput;
+    private short defaultReplicationFactor;
+    private int defaultMinInsyncReplicas;
+    private List<TopicDeclaration> declarations;
+
+    public TopicDeclarations(Environment environment) {
+        this.environment = environment;
+        this.partitionThroughput = environment.getProperty("app.topics.provisioning.partition-throughput", DataSize.class, DataSize.ofMegabytes(5));
+        this.defaultReplicationFactor = environment.getProperty("app.topics.provisioning.replication-factor", Short.class, (short) 1);
+        this.defaultMinInsyncReplicas = environment.getProperty("app.topics.provisioning.min-insync-replicas", Integer.class, 1);
+        if (partitionThroughput.toBytes() <= 0) {
+            throw new IllegalStateException("app.topics.provisioning.partition-throughput must be positive");
+        }
+        this.declarations = List.copyOf(declareAll());
+    }
+
+    public List<TopicDeclaration> declarations() {
+        return declarations;
+    }
+
+    private List<TopicDeclaration> declareAll() {
+        String[] declaredTopics = environment.getProperty("app.topics.declared", String[].class,
+                new String[]{ProductEventRecords.PRODUCT_CREATED_EVENTS_TOPIC});
+        List<TopicDeclaration> result = new ArrayList<>();
+        for (String topic : declaredTopics) {
+            TopicDeclaration declaration = declare(topic, PREFIX + topic + ".", 1);
+            result.add(declaration);
+            int minPartitions = declaration.getPartitions();
+            result.add(declare(topic + DLT_SUFFIX, PREFIX + topic + DLT_SUFFIX + ".", minPartitions));
+            if (!topic.equals(ProductEventRecords.PRODUCT_CREATED_EVENTS_TOPIC)) {
+                continue;
+            }
+            String listenerMode = environment.getProperty("app.consumer.listener-mode", "record");
+            if ("topics".equals(environment.getProperty("app.consumer.retry-mode", "blocking")) && "record".equals(listenerMode)) {
+                // Same names as RetryTopicConfig: suffixed with the delay of the tier in milliseconds
+                for (Duration delay : environment.getProperty("app.consumer.retry-topics.delays", Duration[].class,
+                        new Duration[]{Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofMinutes(5)})) {
+                    result.add(declare(topic + "-retry-" + delay.toMillis(), PREFIX + topic + ".retry.", minPartitions));
+                }
+            }
+            if ("eos".equals(listenerMode)) {
+                String outputTopic = environment.getProperty("app.consumer.eos.output-topic", "product-processed-events-topic");
+                result.add(declare(outputTopic, PREFIX + outputTopic + ".", minPartitions));
+            }
+        }
+        return result;
+    }
+
+    private TopicDeclaration declare(String name, String prefix, int minPartitions) {
+        DataSize targetThroughput = environment.getProperty(prefix + "target-throughput", DataSize.class);
+        int consumerParallelism = environment.getProperty(prefix + "consumer-parallelism", Integer.class, 1);
+        Integer explicitPartitions = environment.getProperty(prefix + "partitions", Integer.class);
+
+        int throughputPartitions = targetThroughput == null ? 1
+                : (int) Math.ceil((double) targetThroughput.toBytes() / partitionThroughput.toBytes());
+        int partitions;
+        String sizing;
+        if (explicitPartitions != null) {
+            partitions = explicitPartitions;
+            sizing = "explicit " + explicitPartitions;
+        } else {
+            partitions = Math.max(throughputPartitions, consumerParallelism);
+            sizing = "throughput " + (targetThroughput == null ? "not declared"
+                    : megabytes(targetThroughput) + "/s at " + megabytes(partitionThroughput) + "/s per partition")
+                    + " -> " + throughputPartitions + ", consumer parallelism " + consumerParallelism;
+        }
+        if (partitions < minPartitions) {
+            partitions = minPartitions;
+            sizing += ", raised to the " + minPartitions + " partitions of the source topic";
+        }
+        if (partitions < 1) {
+            throw new IllegalStateException(prefix + "partitions must be at least 1");
+        }
+
+        short replicationFactor = environment.getProperty(prefix + "replication-factor", Short.class, defaultReplicationFactor);
+        int minInsyncReplicas = environment.getProperty(prefix + "min-insync-replicas", Integer.class, defaultMinInsyncReplicas);
+        if (minInsyncReplicas > replicationFactor) {
+            // Every acks=all send would fail with NotEnoughReplicasException
+            throw new IllegalStateException("Topic " + name + ": min-insync-replicas " + minInsyncReplicas
+                    + " is higher than its replication factor " + replicationFactor);
+        }
+
+        Map<String, String> configs = new TreeMap<>();
+        configs.put(TopicConfig.MIN_IN_SYNC_REPLICAS_CONFIG, String.valueOf(minInsyncReplicas));
+        Duration retention = environment.getProperty(prefix + "retention", Duration.class);
+        if (retention != null) {
+            // A negative retention (e.g. -1) keeps the records forever
+            configs.put(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(retention.isNegative() ? -1 : retention.toMillis()));
+        }
+        DataSize segmentSize = environment.getProperty(prefix + "segment-size", DataSize.class);
+        if (segmentSize != null) {
+            configs.put(TopicConfig.SEGMENT_BYTES_CONFIG, String.valueOf(segmentSize.toBytes()));
+        }
+        Boolean compacted = environment.getProperty(prefix + "compacted", Boolean.class);
+        if (compacted != null) {
+            // Compacted with a declared retention: old segments are compacted AND deleted once expired
+            configs.put(TopicConfig.CLEANUP_POLICY_CONFIG, !compacted ? TopicConfig.CLEANUP_POLICY_DELETE
+                    : retention != null ? TopicConfig.CLEANUP_POLICY_COMPACT + "," + TopicConfig.CLEANUP_POLICY_DELETE
+                    : TopicConfig.CLEANUP_POLICY_COMPACT);
+        }
+        return new TopicDeclaration(name, partitions, replicationFactor, configs, sizing);
+    }
+
+    private static String megabytes(DataSize size) {
+        return String.format("%.1fMB", size.toBytes() / (double) DataSize.ofMegabytes(1).toBytes());
+    }
+}
@@ -0,0 +1,224 @@
+package com.ratnakar.kafka.provisioning;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AlterConfigOp;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.admin.NewPartitions;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Reconciles the topics on the broker with TopicDeclarations, replacing the fixed NewTopic beans:
+1) plan: describes the declared topics and their configs and lists the differences (TopicChange)
+   - CREATE          missing topic, with the declared partitions, replication factor and configs
+   - ADD_PARTITIONS  fewer partitions than declared; the key -> partition mapping changes for new records,
+                     so per-key order only holds within the records written after the expansion
+   - ALTER_CONFIG    a declared config (retention.ms, segment.bytes, cleanup.policy, min.insync.replicas) differs,
+                     set with incrementalAlterConfigs, the configs that are not declared are left alone
+   - MANUAL          more partitions than declared (partitions cannot be removed) or another replication factor
+                     (needs a partition reassignment); reported, never applied
+2) apply: runs the changes one by one, a failed change is reported and does not stop the others
+With app.topics.provisioning.dry-run=true step 2 is skipped and the plan is only logged: deploy with dry-run first,
+review the diff in the log or with GET /actuator/topics, then apply it with POST /actuator/topics (or without dry-run).
+
+Runs while the context starts when spring.kafka.admin.auto-create=true, like KafkaAdmin does for NewTopic beans.
+The fast-startup profile turns auto-create off and StartupWarmup runs it in the background (kafka-topics task).
+kafka.topics.drift counts the changes of the last run that are not applied (dry-run, failed or MANUAL).
+*/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.topics.provisioning.enabled", havingValue = "true", matchIfMissing = true)
+public class TopicProvisioner implements SmartInitializingSingleton {
+    private TopicDeclarations topicDeclarations;
+    private KafkaAdmin kafkaAdmin;
+
+    @Value("${app.topics.provisioning.dry-run:false}")
+    private boolean dryRun;
+
+    @Value("${spring.kafka.admin.auto-create:true}")
+    private boolean autoCreate;
+
+    private final AtomicInteger drift = new AtomicInteger();
+
+    public TopicProvisioner(TopicDeclarations topicDeclarations, KafkaAdmin kafkaAdmin, MeterRegistry meterRegistry) {
+        this.topicDeclarations = topicDeclarations;
+        this.kafkaAdmin = kafkaAdmin;
+        Gauge.builder("kafka.topics.drift", drift, AtomicInteger::get)
+                .description("Differences between the declared and the actual topics left after the last reconciliation")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!autoCreate) {
+            return;
+        }
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            // Same as KafkaAdmin: a broker that is not reachable does not stop the application
+            log.error("Topic provisioning failed: {}", e.toString());
+        }
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public List<TopicDeclaration> declarations() {
+        return topicDeclarations.declarations();
+    }
+
+    // Plans and, unless app.topics.provisioning.dry-run, applies the changes
+    public List<TopicChange> reconcile() {
+        return reconcile(!dryRun);
+    }
+
+    /**
+     * Compares the declared topics with the broker and applies the differences when apply is true.
+     * Throws IllegalStateException when the topics cannot be described (broker not reachable).
+     */
+    public synchronized List<TopicChange> reconcile(boolean apply) {
+        try (AdminClient adminClient = AdminClient.create(kafkaAdmin.getConfigurationProperties())) {
+            List<TopicChange> changes = plan(adminClient);
+            if (apply) {
+                apply(adminClient, changes);
+            }
+            report(changes, apply);
+            drift.set((int) changes.stream().filter(change -> !change.isApplied()).count());
+            return changes;
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Topics could not be described", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while describing the topics", e);
+        }
+    }
+
+    private List<TopicChange> plan(AdminClient adminClient) throws ExecutionException, InterruptedException, TimeoutException {
+        List<TopicDeclaration> declarations = topicDeclarations.declarations();
+        Map<String, KafkaFuture<TopicDescription>> descriptionFutures = adminClient
+                .describeTopics(declarations.stream().map(TopicDeclaration::getName).toList())
+                .topicNameValues();
+        Map<String, TopicDescription> descriptions = new HashMap<>();
+        Map<String, KafkaFuture<Config>> configFutures = new HashMap<>();
+        for (Map.Entry<String, KafkaFuture<TopicDescription>> descriptionFuture : descriptionFutures.entrySet()) {
+            try {
+                descriptions.put(descriptionFuture.getKey(), descriptionFuture.getValue().get(timeoutSeconds(), TimeUnit.SECONDS));
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UnknownTopicOrPartitionException) {
+                    continue;
+                }
+                throw e;
+            }
+            ConfigResource resource = new ConfigResource(ConfigResource.Type.TOPIC, descriptionFuture.getKey());
+            configFutures.put(descriptionFuture.getKey(), adminClient.describeConfigs(List.of(resource)).values().get(resource));
+        }
+
+        List<TopicChange> changes = new ArrayList<>();
+        for (TopicDeclaration declaration : declarations) {
+            String topic = declaration.getName();
+            TopicDescription description = descriptions.get(topic);
+            if (description == null) {
+                NewTopic newTopic = new NewTopic(topic, declaration.getPartitions(), declaration.getReplicationFactor())
+                        .configs(declaration.getConfigs());
+                changes.add(new TopicChange(topic, TopicChange.Action.CREATE,
+                        declaration.getPartitions() + " partitions (" + declaration.getSizing() + "), replication factor "
+                                + declaration.getReplicationFactor() + ", configs " + declaration.getConfigs(),
+                        admin -> admin.createTopics(List.of(newTopic)).all()));
+                continue;
+            }
+
+            int partitions = description.partitions().size();
+            if (declaration.getPartitions() > partitions) {
+                Map<String, NewPartitions> newPartitions = Map.of(topic, NewPartitions.increaseTo(declaration.getPartitions()));
+                changes.add(new TopicChange(topic, TopicChange.Action.ADD_PARTITIONS,
+                        "partitions " + partitions + " -> " + declaration.getPartitions() + " (" + declaration.getSizing() + ")",
+                        admin -> admin.createPartitions(newPartitions).all()));
+            } else if (declaration.getPartitions() < partitions) {
+                changes.add(new TopicChange(topic, TopicChange.Action.MANUAL,
+                        "has " + partitions + " partitions, " + declaration.getPartitions()
+                                + " declared: partitions cannot be removed, keeping " + partitions, null));
+            }
+            int replicationFactor = description.partitions().get(0).replicas().size();
+            if (replicationFactor != declaration.getReplicationFactor()) {
+                changes.add(new TopicChange(topic, TopicChange.Action.MANUAL,
+                        "replication factor " + replicationFactor + ", " + declaration.getReplicationFactor()
+                                + " declared: change it with a partition reassignment (kafka-reassign-partitions)", null));
+            }
+
+            Config config = configFutures.get(topic).get(timeoutSeconds(), TimeUnit.SECONDS);
+            ConfigResource resource = new ConfigResource(ConfigResource.Type.TOPIC, topic);
+            declaration.getConfigs().forEach((name, value) -> {
+                ConfigEntry entry = config.get(name);
+                String current = entry != null ? entry.value() : null;
+                if (!value.equals(current)) {
+                    Map<ConfigResource, Collection<AlterConfigOp>> alter = Map.of(resource,
+                            List.of(new AlterConfigOp(new ConfigEntry(name, value), AlterConfigOp.OpType.SET)));
+                    changes.add(new TopicChange(topic, TopicChange.Action.ALTER_CONFIG,
+                            name + " " + current + (entry != null && entry.isDefault() ? " (default)" : "") + " -> " + value,
+                            admin -> admin.incrementalAlterConfigs(alter).all()));
+                }
+            });
+        }
+        return changes;
+    }
+
+    private void apply(AdminClient adminClient, List<TopicChange> changes) throws InterruptedException {
+        for (TopicChange change : changes) {
+            if (change.operation() == null) {
+                continue;
+            }
+            try {
+                change.operation().apply(adminClient).get(timeoutSeconds(), TimeUnit.SECONDS);
+                change.setApplied(true);
+            } catch (ExecutionException e) {
+                change.setError(e.getCause().toString());
+            } catch (TimeoutException e) {
+                change.setError(e.toString());
+            }
+        }
+    }
+
+    private void report(List<TopicChange> changes, boolean apply) {
+        if (changes.isEmpty()) {
+            log.info("Topics match their declarations: {}", declarations().stream().map(TopicDeclaration::getName).toList());
+            return;
+        }
+        for (TopicChange change : changes) {
+            if (change.isApplied()) {
+                log.info("Topic provisioning applied {}", change);
+            } else if (change.getAction() == TopicChange.Action.MANUAL || change.getError() != null) {
+                log.warn("Topic provisioning needs attention: {}", change);
+            } else {
+                log.info("Topic provisioning{} planned {}", apply ? "" : " [dry-run]", change);
+            }
+        }
+    }
+
+    private long timeoutSeconds() {
+        return kafkaAdmin.getOperationTimeout();
+    }
+}
@@ -0,0 +1,43 @@
+package com.ratnakar.kafka.provisioning;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+GET  /actuator/topics : the declared topics and the diff with the broker (dry-run, nothing is changed)
+POST /actuator/topics : applies the diff, also when app.topics.provisioning.dry-run=true (review, then apply)
+*/
+@Component
+@Endpoint(id = "topics")
+@ConditionalOnProperty(name = "app.topics.provisioning.enabled", havingValue = "true", matchIfMissing = true)
+public class TopicProvisioningEndpoint {
+    private TopicProvisioner topicProvisioner;
+
+    public TopicProvisioningEndpoint(TopicProvisioner topicProvisioner) {
+        this.topicProvisioner = topicProvisioner;
+    }
+
+    @ReadOperation
+    public Map<String, Object> plan() {
+        return describe(false);
+    }
+
+    @WriteOperation
+    public Map<String, Object> apply() {
+        return describe(true);
+    }
+
+    private Map<String, Object> describe(boolean apply) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("dryRun", topicProvisioner.isDryRun());
+        result.put("declarations", topicProvisioner.declarations());
+        result.put("changes", topicProvisioner.reconcile(apply));
+        return result;
+    }
+}
@@ -0,0 +1,365 @@
+package com.ratnakar.kafka.replay;
+
+import com.ratnakar.kafka.model.DltReplayRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.retrytopic.RetryTopicHeaders;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Re-drives records from the Dead Letter Topic back to the main topic (POST /admin/dlt-replay).
+- the DLT partitions are split over `parallelism` workers, each with its own KafkaConsumer (manual assignment)
+- a worker starts at fromOffset / fromTime or, without both, at the offsets committed by the previous replay
+- it stops at toTime or at the end offsets of the DLT taken when the replay started, so records that fail again
+  and land in the DLT during the replay are not picked up in a loop
+- records not matching the exception / key filters are skipped, the others are re-published unchanged (same key,
+  value bytes and headers minus the kafka_dlt-* and retry_topic-* headers) through one TokenBucket shared by all workers
+- a replayed record restarts its retry budget: without the retry topic headers (attempts, original and backoff
+  timestamps) app.consumer.retry-mode=topics treats it as a new failure, with all attempts and the full back off
+  again, instead of sending it straight back to the DLT as exhausted
+- after every poll the worker waits for the broker acks and commits the next offsets in the app.replay.group-id
+  consumer group: that is the checkpoint a replay of millions of records resumes from after a restart
+A failed re-publish stops the worker without committing the poll, so the records are replayed again on resume;
+consumers dedup by messageId, a duplicate is harmless. One replay runs at a time.
+*/
+@Slf4j
+@Service
+public class DltReplayService {
+    private static final String DLT_HEADER_PREFIX = "kafka_dlt-";
+    // Retry state of the failed attempts, dropped so that a replay starts with a fresh retry budget
+    private static final Set<String> RETRY_TOPIC_HEADERS = Set.of(
+            RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS,
+            RetryTopicHeaders.DEFAULT_HEADER_ORIGINAL_TIMESTAMP,
+            RetryTopicHeaders.DEFAULT_HEADER_BACKOFF_TIMESTAMP);
+
+    private KafkaTemplate<String, Object> kafkaTemplateConfig;
+    private Environment environment;
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.replay.dlt-topic:product-created-events-topic.DLT}")
+    private String dltTopic;
+    @Value("${app.replay.target-topic:product-created-events-topic}")
+    private String targetTopic;
+    // Consumer group that holds the replay checkpoint (never used by a listener)
+    @Value("${app.replay.group-id:product-created-events-dlt-replay}")
+    private String groupId;
+    @Value("${app.replay.rate-per-second:100}")
+    private double defaultRatePerSecond;
+    @Value("${app.replay.parallelism:2}")
+    private int defaultParallelism;
+    // Records per poll, also the number of re-published records per checkpoint
+    @Value("${app.replay.max-poll-records:500}")
+    private int maxPollRecords;
+
+    private volatile ReplayRun currentRun;
+
+    public DltReplayService(KafkaTemplate<String, Object> kafkaTemplateConfig, Environment environment, MeterRegistry meterRegistry) {
+        this.kafkaTemplateConfig = kafkaTemplateConfig;
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public synchronized Map<String, Object> start(DltReplayRequest request) {
+        if (currentRun != null && currentRun.isRunning()) {
+            throw new IllegalStateException("A DLT replay is already running");
+        }
+        double ratePerSecond = request.getRatePerSecond() != null ? request.getRatePerSecond() : defaultRatePerSecond;
+        int parallelism = request.getParallelism() != null ? request.getParallelism() : defaultParallelism;
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+
+        List<TopicPartition> partitions = dltPartitions();
+        int workers = Math.min(parallelism, partitions.size());
+        ReplayRun run = new ReplayRun(request, new TokenBucket(ratePerSecond), workers);
+        currentRun = run;
+        if (workers == 0) {
+            run.finish("COMPLETED");
+            return run.status();
+        }
+
+        // Round robin: worker i reads partitions i, i + workers, i + 2 * workers...
+        for (int i = 0; i < workers; i++) {
+            List<TopicPartition> assigned = new ArrayList<>();
+            for (int p = i; p < partitions.size(); p += workers) {
+                assigned.add(partitions.get(p));
+            }
+            run.executor.execute(() -> replayPartitions(run, assigned));
+        }
+        run.executor.shutdown();
+        log.info("DLT replay started: {} partitions, {} workers, {} records/s", partitions.size(), workers, ratePerSecond);
+        return run.status();
+    }
+
+    public Map<String, Object> status() {
+        ReplayRun run = currentRun;
+        return run != null ? run.status() : Map.of("state", "IDLE");
+    }
+
+    // Workers stop after their current poll and commit what they re-published, a later start() resumes from there
+    public Map<String, Object> stop() {
+        ReplayRun run = currentRun;
+        if (run == null) {
+            return status();
+        }
+        run.stopRequested = true;
+        return run.status();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        ReplayRun run = currentRun;
+        if (run != null && run.isRunning()) {
+            run.stopRequested = true;
+            run.executor.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private void replayPartitions(ReplayRun run, List<TopicPartition> partitions) {
+        try (KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(consumerConfigs(), new StringDeserializer(), new ByteArrayDeserializer())) {
+            consumer.assign(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            seekToStart(consumer, partitions, run.request);
+
+            Set<TopicPartition> remaining = new HashSet<>(partitions);
+            remaining.removeIf(partition -> consumer.position(partition) >= endOffsets.get(partition));
+            while (!remaining.isEmpty() && !run.stopRequested) {
+                ConsumerRecords<String, byte[]> records = consumer.poll(Duration.ofSeconds(1));
+                List<CompletableFuture<?>> sends = new ArrayList<>(records.count());
+                Map<TopicPartition, OffsetAndMetadata> checkpoint = new HashMap<>();
+
+                for (TopicPartition partition : records.partitions()) {
+                    for (ConsumerRecord<String, byte[]> record : records.records(partition)) {
+                        if (record.offset() >= endOffsets.get(partition) || isAfterRange(record, run.request)) {
+                            remaining.remove(partition);
+                            consumer.pause(List.of(partition));
+                            break;
+                        }
+                        run.read.incrementAndGet();
+                        if (matches(record, run.request)) {
+                            run.tokenBucket.acquire();
+                            sends.add(kafkaTemplateConfig.send(replayRecord(record)));
+                        } else {
+                            run.skipped.incrementAndGet();
+                            meterRegistry.counter("dlt.replay.records", "outcome", "skipped").increment();
+                        }
+                        checkpoint.put(partition, new OffsetAndMetadata(record.offset() + 1));
+                    }
+                }
+
+                int failed = awaitSends(run, sends);
+                if (failed > 0) {
+                    run.failed.addAndGet(failed);
+                    throw new IllegalStateException(failed + " records could not be re-published, the last poll is not checkpointed");
+                }
+                if (!checkpoint.isEmpty()) {
+                    consumer.commitSync(checkpoint);
+                    checkpoint.forEach((partition, offset) -> run.positions.put(partition.partition(), offset.offset()));
+                }
+                for (TopicPartition partition : partitions) {
+                    if (remaining.contains(partition) && consumer.position(partition) >= endOffsets.get(partition)) {
+                        remaining.remove(partition);
+                    }
+                }
+            }
+            run.workerDone(null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.workerDone(e);
+        } catch (Exception e) {
+            log.error("DLT replay worker for {} failed", partitions, e);
+            run.workerDone(e);
+        }
+    }
+
+    private int awaitSends(ReplayRun run, List<CompletableFuture<?>> sends) {
+        int failed = 0;
+        for (CompletableFuture<?> send : sends) {
+            try {
+                send.join();
+                run.replayed.incrementAndGet();
+                meterRegistry.counter("dlt.replay.records", "outcome", "replayed").increment();
+            } catch (Exception e) {
+                failed++;
+                meterRegistry.counter("dlt.replay.records", "outcome", "failed").increment();
+            }
+        }
+        return failed;
+    }
+
+    private void seekToStart(KafkaConsumer<String, byte[]> consumer, List<TopicPartition> partitions, DltReplayRequest request) {
+        if (request.getFromTime() != null) {
+            Map<TopicPartition, Long> timestamps = new HashMap<>();
+            partitions.forEach(partition -> timestamps.put(partition, request.getFromTime().toEpochMilli()));
+            Map<TopicPartition, OffsetAndTimestamp> offsets = consumer.offsetsForTimes(timestamps);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            // null: no record at / after fromTime in that partition
+            offsets.forEach((partition, offset) -> consumer.seek(partition, offset != null ? offset.offset() : endOffsets.get(partition)));
+        } else if (request.getFromOffset() != null) {
+            Map<TopicPartition, Long> beginningOffsets = consumer.beginningOffsets(partitions);
+            partitions.forEach(partition -> consumer.seek(partition, Math.max(request.getFromOffset(), beginningOffsets.get(partition))));
+        } else {
+            // Resume from the checkpoint, partitions never replayed start at the beginning
+            Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+            for (TopicPartition partition : partitions) {
+                OffsetAndMetadata offset = committed.get(partition);
+                if (offset != null) {
+                    consumer.seek(partition, offset.offset());
+                } else {
+                    consumer.seekToBeginning(List.of(partition));
+                }
+            }
+        }
+    }
+
+    private static boolean isAfterRange(ConsumerRecord<String, byte[]> record, DltReplayRequest request) {
+        return request.getToTime() != null && record.timestamp() > request.getToTime().toEpochMilli();
+    }
+
+    private static boolean matches(ConsumerRecord<String, byte[]> record, DltReplayRequest request) {
+        if (request.getKey() != null && !request.getKey().equals(record.key())) {
+            return false;
+        }
+        if (request.getException() != null) {
+            return headerContains(record, KafkaHeaders.DLT_EXCEPTION_FQCN, request.getException())
+                    || headerContains(record, KafkaHeaders.DLT_EXCEPTION_CAUSE_FQCN, request.getException());
+        }
+        return true;
+    }
+
+    private static boolean headerContains(ConsumerRecord<String, byte[]> record, String name, String text) {
+        Header header = record.headers().lastHeader(name);
+        return header != null && new String(header.value(), StandardCharsets.UTF_8).contains(text);
+    }
+
+    // Same key, value bytes (whatever the wire format) and headers as the original record, without the DLT diagnostics
+    // and the retry topic state, so the replayed record gets all its retries again
+    private ProducerRecord<String, Object> replayRecord(ConsumerRecord<String, byte[]> record) {
+        ProducerRecord<String, Object> replay = new ProducerRecord<>(targetTopic, record.key(), record.value());
+        for (Header header : record.headers()) {
+            if (!header.key().startsWith(DLT_HEADER_PREFIX) && !RETRY_TOPIC_HEADERS.contains(header.key())) {
+                replay.headers().add(header);
+            }
+        }
+        return replay;
+    }
+
+    private List<TopicPartition> dltPartitions() {
+        try (KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(consumerConfigs(), new StringDeserializer(), new ByteArrayDeserializer())) {
+            List<PartitionInfo> partitionInfos = consumer.partitionsFor(dltTopic);
+            List<TopicPartition> partitions = new ArrayList<>();
+            if (partitionInfos != null) {
+                partitionInfos.forEach(info -> partitions.add(new TopicPartition(info.topic(), info.partition())));
+            }
+            partitions.sort((a, b) -> Integer.compare(a.partition(), b.partition()));
+            return partitions;
+        }
+    }
+
+    private Map<String, Object> consumerConfigs() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, environment.getProperty("spring.kafka.consumer.bootstrap-servers"));
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        return config;
+    }
+
+    private static final class ReplayRun {
+        private final DltReplayRequest request;
+        private final TokenBucket tokenBucket;
+        private final ExecutorService executor;
+        private final AtomicInteger activeWorkers;
+        private final AtomicLong read = new AtomicLong();
+        private final AtomicLong replayed = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        // Next offset to replay per DLT partition, as committed in the checkpoint
+        private final Map<Integer, Long> positions = new ConcurrentHashMap<>();
+        private final Instant startedAt = Instant.now();
+        private volatile boolean stopRequested;
+        private volatile String state = "RUNNING";
+        private volatile String error;
+        private volatile Instant finishedAt;
+
+        private ReplayRun(DltReplayRequest request, TokenBucket tokenBucket, int workers) {
+            this.request = request;
+            this.tokenBucket = tokenBucket;
+            this.activeWorkers = new AtomicInteger(workers);
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(Math.max(1, workers),
+                    runnable -> new Thread(runnable, "dlt-replay-" + threadNumber.incrementAndGet()));
+        }
+
+        private boolean isRunning() {
+            return "RUNNING".equals(state);
+        }
+
+        private void workerDone(Exception failure) {
+            if (failure != null) {
+                error = failure.getMessage();
+            }
+            if (activeWorkers.decrementAndGet() == 0) {
+                finish(error != null ? "FAILED" : stopRequested ? "STOPPED" : "COMPLETED");
+            }
+        }
+
+        private void finish(String finalState) {
+            finishedAt = Instant.now();
+            state = finalState;
+        }
+
+        private Map<String, Object> status() {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("state", state);
+            status.put("startedAt", startedAt);
+            status.put("finishedAt", finishedAt);
+            status.put("ratePerSecond", tokenBucket.getRatePerSecond());
+            status.put("read", read.get());
+            status.put("replayed", replayed.get());
+            status.put("skipped", skipped.get());
+            status.put("failed", failed.get());
+            status.put("positions", new TreeMap<>(positions));
+            status.put("error", error);
+            return status;
+        }
+    }
+}
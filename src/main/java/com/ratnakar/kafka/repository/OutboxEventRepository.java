@@ -0,0 +1,42 @@
+package com.ratnakar.kafka.repository;
+
+import com.ratnakar.kafka.model.OutboxEventEntity;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEventEntity, Long> {
+    /*
+    Oldest unsent events first, the relay publishes them in this order.
+    The rows are locked (SELECT ... FOR UPDATE SKIP LOCKED, lock timeout -2) until the relay's transaction ends:
+    a second instance running the relay at the same time skips them and claims the next unsent rows instead of
+    publishing the same batch again. Has to be called inside a transaction.
+    H2 has no SKIP LOCKED, its dialect sends a plain FOR UPDATE: the second relay waits for the lock instead.
+    */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    List<OutboxEventEntity> findBySentAtIsNullOrderByIdAsc(Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("update OutboxEventEntity o set o.sentAt = :sentAt where o.id in :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("sentAt") Instant sentAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OutboxEventEntity o where o.sentAt < :sentBefore")
+    int deleteSentBefore(@Param("sentBefore") Instant sentBefore);
+}
@@ -0,0 +1,82 @@
+package com.ratnakar.kafka.repository;
+
+import com.ratnakar.kafka.model.ProcessEventEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
+import org.springframework.jdbc.support.incrementer.H2SequenceMaxValueIncrementer;
+import org.springframework.jdbc.support.incrementer.PostgresSequenceMaxValueIncrementer;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+/*
+Plain JDBC writer for the processed_events idempotency table.
+All rows are sent to the database as ONE JDBC batch (a single round trip) instead of one save()/flush per message.
+
+Ids come from the same "processed_events_seq" sequence Hibernate uses for ProcessEventEntity.
+Like Hibernate's pooled optimizer, one nextval reserves a block of ProcessEventEntity.ID_ALLOCATION_SIZE ids (hi - size + 1 .. hi),
+so both writers can share the sequence without handing out the same id twice.
+*/
+@Repository
+public class ProcessEventBatchRepository {
+    private static final String INSERT_SQL =
+            "insert into processed_events (id, message_id, product_id, processed_at) values (?, ?, ?, ?)";
+
+    private JdbcTemplate jdbcTemplate;
+    private DataFieldMaxValueIncrementer idIncrementer;
+    // Current block of reserved ids, nextId > hiId means the block is used up
+    private long nextId = 1;
+    private long hiId = 0;
+
+    public ProcessEventBatchRepository(JdbcTemplate jdbcTemplate, DataSource dataSource,
+                                       @Value("${spring.datasource.url}") String jdbcUrl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.idIncrementer = switch (DatabaseDriver.fromJdbcUrl(jdbcUrl)) {
+            case POSTGRESQL -> new PostgresSequenceMaxValueIncrementer(dataSource, ProcessEventEntity.ID_SEQUENCE_NAME);
+            case H2 -> new H2SequenceMaxValueIncrementer(dataSource, ProcessEventEntity.ID_SEQUENCE_NAME);
+            default -> throw new IllegalStateException("No id sequence support for datasource " + jdbcUrl);
+        };
+    }
+
+    public void saveAll(List<ProcessEventEntity> processEventEntities) {
+        if (processEventEntities.isEmpty()) {
+            return;
+        }
+        long[] ids = allocateIds(processEventEntities.size());
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ProcessEventEntity processEventEntity = processEventEntities.get(i);
+                processEventEntity.setId(ids[i]);
+                ps.setLong(1, ids[i]);
+                ps.setString(2, processEventEntity.getMessageId());
+                ps.setString(3, processEventEntity.getProductId());
+                ps.setTimestamp(4, Timestamp.from(processEventEntity.getProcessedAt()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return processEventEntities.size();
+            }
+        });
+    }
+
+    private synchronized long[] allocateIds(int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            if (nextId > hiId) {
+                hiId = idIncrementer.nextLongValue();
+                nextId = Math.max(1, hiId - ProcessEventEntity.ID_ALLOCATION_SIZE + 1);
+            }
+            ids[i] = nextId++;
+        }
+        return ids;
+    }
+}
@@ -1,10 +1,41 @@
 package com.ratnakar.kafka.repository;
 
 import com.ratnakar.kafka.model.ProcessEventEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
 @Repository
 public interface ProcessEventRepository extends JpaRepository<ProcessEventEntity, Long> {
     ProcessEventEntity findByMessageId(String messageId);
+
+    // Bulk idempotency check for the batch listener: one IN (...) query for all messageIds of a poll
+    @Query("select p.messageId from ProcessEventEntity p where p.messageId in :messageIds")
+    Set<String> findProcessedMessageIds(@Param("messageIds") Collection<String> messageIds);
+
+    // Most recently processed messageIds first, used to warm up the dedup Bloom filter
+    @Query("select p.messageId from ProcessEventEntity p order by p.id desc")
+    List<String> findRecentMessageIds(Pageable pageable);
+
+    // Retention purge: the ids of the next batch of expired rows (index range scan on processed_at),
+    // deleted by primary key afterwards so that each delete statement touches a small, bounded set of rows
+    @Query("select p.id from ProcessEventEntity p where p.processedAt < :processedBefore order by p.processedAt, p.id")
+    List<Long> findIdsProcessedBefore(@Param("processedBefore") Instant processedBefore, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ProcessEventEntity p where p.id in :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select min(p.processedAt) from ProcessEventEntity p")
+    Instant findOldestProcessedAt();
 }
@@ -0,0 +1,110 @@
+package com.ratnakar.kafka.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+Table level SQL for the processed_events idempotency table, used by the retention job (ProcessedEventsRetention):
+- size statistics: row count and, on PostgreSQL, the size on disk of the table, its indexes and its partitions
+- daily range partitions on PostgreSQL (see db/postgresql/processed_events_partitioned.sql):
+  processed_events_pYYYYMMDD holds the rows processed on that UTC day, [day 00:00, next day 00:00)
+*/
+@Repository
+public class ProcessEventTableRepository {
+    private static final String PARTITION_PREFIX = "processed_events_p";
+    private static final Pattern PARTITION_NAME = Pattern.compile(PARTITION_PREFIX + "(\\d{8})");
+    private static final DateTimeFormatter PARTITION_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private JdbcTemplate jdbcTemplate;
+    private DatabaseDriver databaseDriver;
+
+    public ProcessEventTableRepository(JdbcTemplate jdbcTemplate, @Value("${spring.datasource.url}") String jdbcUrl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.databaseDriver = DatabaseDriver.fromJdbcUrl(jdbcUrl);
+    }
+
+    public boolean isPostgres() {
+        return databaseDriver == DatabaseDriver.POSTGRESQL;
+    }
+
+    // PostgreSQL: planner estimate from pg_class (no table scan, refreshed by autovacuum / analyze), summed over the partitions.
+    // Other databases: exact count(*), fine for the in-memory H2 of development
+    public long estimateRowCount() {
+        Long rows = isPostgres()
+                ? jdbcTemplate.queryForObject("select coalesce(sum(greatest(c.reltuples, 0)), 0)::bigint from pg_class c "
+                + "where c.relkind = 'r' and (c.relname = 'processed_events' or c.relname like '" + PARTITION_PREFIX + "%')", Long.class)
+                : jdbcTemplate.queryForObject("select count(*) from processed_events", Long.class);
+        return rows != null ? rows : 0;
+    }
+
+    // Table + indexes + TOAST of processed_events and all its partitions, -1 when the database does not report it
+    public long totalBytes() {
+        if (!isPostgres()) {
+            return -1;
+        }
+        Long bytes = jdbcTemplate.queryForObject("select coalesce(sum(pg_total_relation_size(c.oid)), 0) from pg_class c "
+                + "where c.relkind = 'r' and (c.relname = 'processed_events' or c.relname like '" + PARTITION_PREFIX + "%')", Long.class);
+        return bytes != null ? bytes : -1;
+    }
+
+    public boolean isPartitioned() {
+        if (!isPostgres()) {
+            return false;
+        }
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "select exists (select 1 from pg_partitioned_table p join pg_class c on c.oid = p.partrelid "
+                        + "where c.relname = 'processed_events')", Boolean.class);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    // Attached partitions of processed_events by their day, oldest first
+    public Map<LocalDate, String> findPartitions() {
+        List<String> names = jdbcTemplate.queryForList("select c.relname from pg_inherits i "
+                + "join pg_class c on c.oid = i.inhrelid join pg_class p on p.oid = i.inhparent "
+                + "where p.relname = 'processed_events'", String.class);
+        Map<LocalDate, String> partitions = new TreeMap<>();
+        for (String name : names) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (matcher.matches()) {
+                partitions.put(LocalDate.parse(matcher.group(1), PARTITION_DATE), name);
+            }
+        }
+        return partitions;
+    }
+
+    public void createPartition(LocalDate day) {
+        Instant from = day.atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant to = day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        jdbcTemplate.execute("create table if not exists " + partitionName(day) + " partition of processed_events "
+                + "for values from ('" + from + "') to ('" + to + "')");
+    }
+
+    // Estimated rows of a partition, read before it is dropped for the purge counter
+    public long estimatePartitionRows(String partition) {
+        Long rows = jdbcTemplate.queryForObject(
+                "select greatest(reltuples, 0)::bigint from pg_class where relname = ?", Long.class, partition);
+        return rows != null ? rows : 0;
+    }
+
+    // Dropping a partition removes its file and its index files at once: no row by row delete, no dead tuples to vacuum.
+    // The partition name only ever comes from findPartitions()
+    public void dropPartition(String partition) {
+        jdbcTemplate.execute("drop table if exists " + partition);
+    }
+
+    public static String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + PARTITION_DATE.format(day);
+    }
+}
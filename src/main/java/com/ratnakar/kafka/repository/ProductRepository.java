@@ -0,0 +1,9 @@
+package com.ratnakar.kafka.repository;
+
+import com.ratnakar.kafka.model.ProductEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductRepository extends JpaRepository<ProductEntity, String> {
+}
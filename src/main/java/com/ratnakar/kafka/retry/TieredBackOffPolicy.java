@@ -0,0 +1,64 @@
+package com.ratnakar.kafka.retry;
+
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.BackOffContext;
+import org.springframework.retry.backoff.BackOffInterruptedException;
+import org.springframework.retry.backoff.SleepingBackOffPolicy;
+import org.springframework.retry.backoff.Sleeper;
+import org.springframework.retry.backoff.ThreadWaitSleeper;
+
+import java.time.Duration;
+import java.util.List;
+
+/*
+Back off with an explicit delay per retry: 5s, 30s, 5m instead of initial * multiplier^n.
+spring-kafka creates one retry topic per distinct delay by replaying the policy with a recording Sleeper
+(BackOffValuesGenerator), so this policy only has to report the delays in order; the last delay is repeated
+if more attempts are configured than delays.
+*/
+public class TieredBackOffPolicy implements SleepingBackOffPolicy<TieredBackOffPolicy> {
+    private final List<Duration> delays;
+    private final Sleeper sleeper;
+
+    public TieredBackOffPolicy(List<Duration> delays) {
+        this(delays, new ThreadWaitSleeper());
+    }
+
+    private TieredBackOffPolicy(List<Duration> delays, Sleeper sleeper) {
+        if (delays.isEmpty()) {
+            throw new IllegalArgumentException("At least one retry delay is required");
+        }
+        this.delays = List.copyOf(delays);
+        this.sleeper = sleeper;
+    }
+
+    public List<Duration> getDelays() {
+        return delays;
+    }
+
+    @Override
+    public TieredBackOffPolicy withSleeper(Sleeper sleeper) {
+        return new TieredBackOffPolicy(delays, sleeper);
+    }
+
+    @Override
+    public BackOffContext start(RetryContext context) {
+        return new TierContext();
+    }
+
+    @Override
+    public void backOff(BackOffContext backOffContext) throws BackOffInterruptedException {
+        TierContext tierContext = (TierContext) backOffContext;
+        Duration delay = delays.get(Math.min(tierContext.retries++, delays.size() - 1));
+        try {
+            sleeper.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BackOffInterruptedException("Thread interrupted while sleeping", e);
+        }
+    }
+
+    private static final class TierContext implements BackOffContext {
+        private int retries;
+    }
+}
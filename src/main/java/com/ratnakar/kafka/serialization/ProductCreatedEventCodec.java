@@ -0,0 +1,236 @@
+package com.ratnakar.kafka.serialization;
+
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/*
+Hand-rolled, schema-versioned binary layout for ProductCreatedEvent (no reflection, no field names, no type headers).
+
+  byte     version         = 1
+  byte     flags           bit0 title present, bit1 price present, bit2 quantity present,
+                           bit3 productId is a UUID (16 raw bytes instead of text),
+                           bit4 price unscaled value does not fit in a long (stored as two's complement bytes),
+                           bit5 productId absent (null)
+  productId (not bit5)     UUID: 8 bytes most significant + 8 bytes least significant
+                           text: varint length + UTF-8 bytes
+  title    (bit0)          varint length + UTF-8 bytes
+  price    (bit1)          zigzag varint scale, then zigzag varlong unscaled value
+                           or (bit4) varint length + BigInteger.toByteArray()
+  quantity (bit2)          zigzag varint
+
+A typical event (UUID productId, short title, 2 decimal price, quantity) takes ~40 bytes instead of ~110 bytes of JSON
+plus the __TypeId__ header. A new layout must use a new version number, decode() rejects versions it does not know.
+*/
+final class ProductCreatedEventCodec {
+    static final byte VERSION_1 = 1;
+
+    private static final int TITLE_PRESENT = 1;
+    private static final int PRICE_PRESENT = 1 << 1;
+    private static final int QUANTITY_PRESENT = 1 << 2;
+    private static final int UUID_PRODUCT_ID = 1 << 3;
+    private static final int BIG_UNSCALED_PRICE = 1 << 4;
+    private static final int PRODUCT_ID_ABSENT = 1 << 5;
+
+    private ProductCreatedEventCodec() {
+    }
+
+    static byte[] encode(ProductCreatedEvent event) {
+        Writer writer = new Writer(64);
+        UUID uuidProductId = parseUuid(event.getProductId());
+        BigDecimal price = event.getPrice();
+        boolean bigUnscaled = price != null && price.unscaledValue().bitLength() > 63;
+        int flags = (event.getTitle() != null ? TITLE_PRESENT : 0)
+                | (price != null ? PRICE_PRESENT : 0)
+                | (event.getQuantity() != null ? QUANTITY_PRESENT : 0)
+                | (uuidProductId != null ? UUID_PRODUCT_ID : 0)
+                | (bigUnscaled ? BIG_UNSCALED_PRICE : 0)
+                | (event.getProductId() == null ? PRODUCT_ID_ABSENT : 0);
+        writer.writeByte(VERSION_1);
+        writer.writeByte(flags);
+        if (uuidProductId != null) {
+            writer.writeLong(uuidProductId.getMostSignificantBits());
+            writer.writeLong(uuidProductId.getLeastSignificantBits());
+        } else if (event.getProductId() != null) {
+            writer.writeString(event.getProductId());
+        }
+        if (event.getTitle() != null) {
+            writer.writeString(event.getTitle());
+        }
+        if (price != null) {
+            writer.writeVarLong(zigzag(price.scale()));
+            if (bigUnscaled) {
+                writer.writeBytes(price.unscaledValue().toByteArray());
+            } else {
+                writer.writeVarLong(zigzag(price.unscaledValue().longValue()));
+            }
+        }
+        if (event.getQuantity() != null) {
+            writer.writeVarLong(zigzag(event.getQuantity()));
+        }
+        return writer.toByteArray();
+    }
+
+    static ProductCreatedEvent decode(byte[] data) {
+        try {
+            Reader reader = new Reader(data);
+            byte version = reader.readByte();
+            if (version != VERSION_1) {
+                throw new SerializationException("Unsupported ProductCreatedEvent binary version " + version);
+            }
+            int flags = reader.readByte();
+            ProductCreatedEvent event = new ProductCreatedEvent();
+            if ((flags & UUID_PRODUCT_ID) != 0) {
+                event.setProductId(new UUID(reader.readLong(), reader.readLong()).toString());
+            } else if ((flags & PRODUCT_ID_ABSENT) == 0) {
+                event.setProductId(reader.readString());
+            }
+            if ((flags & TITLE_PRESENT) != 0) {
+                event.setTitle(reader.readString());
+            }
+            if ((flags & PRICE_PRESENT) != 0) {
+                int scale = (int) unzigzag(reader.readVarLong());
+                BigInteger unscaled = (flags & BIG_UNSCALED_PRICE) != 0
+                        ? new BigInteger(reader.readBytes())
+                        : BigInteger.valueOf(unzigzag(reader.readVarLong()));
+                event.setPrice(new BigDecimal(unscaled, scale));
+            }
+            if ((flags & QUANTITY_PRESENT) != 0) {
+                event.setQuantity((int) unzigzag(reader.readVarLong()));
+            }
+            return event;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new SerializationException("Truncated ProductCreatedEvent binary payload", e);
+        }
+    }
+
+    private static UUID parseUuid(String productId) {
+        // Only the canonical lower case form round trips exactly through UUID.toString()
+        if (productId == null || productId.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(productId);
+            return uuid.toString().equals(productId) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        Writer(int initialCapacity) {
+            this.buffer = new byte[initialCapacity];
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarLong(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeString(String value) {
+            writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        byte readByte() {
+            return data[position++];
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (data[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("Malformed varint in ProductCreatedEvent binary payload");
+        }
+
+        byte[] readBytes() {
+            int length = (int) readVarLong();
+            if (length < 0 || length > data.length - position) {
+                throw new SerializationException("Invalid length " + length + " in ProductCreatedEvent binary payload");
+            }
+            byte[] bytes = Arrays.copyOfRange(data, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        String readString() {
+            int length = (int) readVarLong();
+            if (length < 0 || length > data.length - position) {
+                throw new SerializationException("Invalid length " + length + " in ProductCreatedEvent binary payload");
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.ratnakar.kafka.serialization;
+
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/*
+Kafka Deserializer reading the binary layout of ProductCreatedEventCodec.
+Used as the delegate of ErrorHandlingDeserializer (KafkaConsumerConfig.consumerFactory) with app.kafka.value-format=binary,
+a malformed payload throws SerializationException which ErrorHandlingDeserializer turns into a DLT record.
+*/
+public class ProductCreatedEventDeserializer implements Deserializer<ProductCreatedEvent> {
+    @Override
+    public ProductCreatedEvent deserialize(String topic, byte[] data) {
+        return data == null ? null : ProductCreatedEventCodec.decode(data);
+    }
+}
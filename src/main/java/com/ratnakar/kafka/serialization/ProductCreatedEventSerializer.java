@@ -0,0 +1,15 @@
+package com.ratnakar.kafka.serialization;
+
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import org.apache.kafka.common.serialization.Serializer;
+
+/*
+Kafka Serializer writing ProductCreatedEvent in the compact binary layout of ProductCreatedEventCodec.
+Selected with app.kafka.value-format=binary (KafkaProducerConfig.producerConfigs).
+*/
+public class ProductCreatedEventSerializer implements Serializer<ProductCreatedEvent> {
+    @Override
+    public byte[] serialize(String topic, ProductCreatedEvent data) {
+        return data == null ? null : ProductCreatedEventCodec.encode(data);
+    }
+}
@@ -0,0 +1,106 @@
+package com.ratnakar.kafka.service;
+
+import com.ratnakar.kafka.metrics.PublishMetrics;
+import com.ratnakar.kafka.model.OutboxEventEntity;
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import com.ratnakar.kafka.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/*
+Background publisher of the transactional outbox (app.product.publish-mode=outbox).
+Every poll interval it claims the unsent outbox rows in id order, in batches of batchSize, and for each batch,
+inside one database transaction:
+1) locks the rows (FOR UPDATE SKIP LOCKED), rows claimed by the relay of another instance are skipped
+2) sends all records inside ONE Kafka transaction (KafkaTemplate.executeInTransaction), the producer pipelines them
+3) marks the rows as sent once the Kafka transaction is committed, the commit releases the locks
+If the application stops between 2) and 3) the batch is published again after restart: the events keep their messageId,
+so the consumers' idempotency check drops the duplicates (at-least-once publishing, exactly-once processing).
+Runs on a single scheduler thread per instance, which keeps the per-product order of the outbox.
+*/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.product.publish-mode", havingValue = "outbox")
+public class OutboxRelay {
+    private KafkaTemplate<String, ProductCreatedEvent> kafkaTemplate;
+    private OutboxEventRepository outboxEventRepository;
+    private PublishMetrics publishMetrics;
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    // Upper bound of batches published in one run, so that one run does not hold the scheduler thread forever
+    @Value("${app.outbox.relay.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${app.outbox.sent-retention:PT1H}")
+    private Duration sentRetention;
+
+    public OutboxRelay(KafkaTemplate<String, ProductCreatedEvent> kafkaTemplate, OutboxEventRepository outboxEventRepository,
+                       PublishMetrics publishMetrics, PlatformTransactionManager transactionManager) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.outboxEventRepository = outboxEventRepository;
+        this.publishMetrics = publishMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.relay.poll-interval:PT0.1S}")
+    public void relay() {
+        for (int run = 0; run < maxBatchesPerRun; run++) {
+            Integer relayed = transactionTemplate.execute(status -> relayBatch());
+            if (relayed == null || relayed < batchSize) {
+                return;
+            }
+        }
+    }
+
+    // Claims, publishes and marks one batch, the row locks are held until the surrounding transaction commits
+    private int relayBatch() {
+        List<OutboxEventEntity> batch = outboxEventRepository.findBySentAtIsNullOrderByIdAsc(PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        publish(batch);
+        outboxEventRepository.markSent(batch.stream().map(OutboxEventEntity::getId).toList(), Instant.now());
+        log.info("Relayed {} outbox events to Kafka", batch.size());
+        return batch.size();
+    }
+
+    // Sent rows are only kept for troubleshooting, they are deleted after the retention period
+    @Scheduled(fixedDelayString = "${app.outbox.cleanup-interval:PT1M}")
+    public void deleteSentEvents() {
+        int deleted = outboxEventRepository.deleteSentBefore(Instant.now().minus(sentRetention));
+        if (deleted > 0) {
+            log.info("Deleted {} sent outbox events", deleted);
+        }
+    }
+
+    private void publish(List<OutboxEventEntity> batch) {
+        // commitTransaction() flushes the producer and fails if any send failed, the whole batch is then retried on the next run
+        kafkaTemplate.executeInTransaction(operations -> {
+            for (OutboxEventEntity outboxEvent : batch) {
+                ProductCreatedEvent productCreatedEvent = new ProductCreatedEvent(
+                        outboxEvent.getProductId(),
+                        outboxEvent.getTitle(),
+                        outboxEvent.getPrice(),
+                        outboxEvent.getQuantity()
+                );
+                publishMetrics.timeSend("outbox", () ->
+                        operations.send(ProductEventRecords.productCreatedRecord(productCreatedEvent, outboxEvent.getMessageId())));
+            }
+            return null;
+        });
+    }
+}
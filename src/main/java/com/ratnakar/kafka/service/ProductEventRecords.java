@@ -0,0 +1,31 @@
+package com.ratnakar.kafka.service;
+
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import org.apache.kafka.clients.producer.ProducerRecord;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+Builds the Kafka record for a ProductCreatedEvent, shared by the direct publish paths (ProductServiceImpl)
+and the outbox relay (OutboxRelay) so that both produce exactly the same topic, key and headers.
+*/
+public final class ProductEventRecords {
+    // Topic consumed by the EventHandler listeners, declared in app.topics.* and created by TopicProvisioner
+    public static final String PRODUCT_CREATED_EVENTS_TOPIC = "product-created-events-topic";
+    // Header carrying the unique id used by the consumers for idempotency (different from the productId)
+    public static final String MESSAGE_ID_HEADER = "messageId";
+
+    private ProductEventRecords() {
+    }
+
+    public static ProducerRecord<String, ProductCreatedEvent> productCreatedRecord(ProductCreatedEvent productCreatedEvent, String messageId) {
+        // The productId is the record key, so all events of one product land on the same partition (ordering per product)
+        ProducerRecord<String, ProductCreatedEvent> record = new ProducerRecord<>(
+                PRODUCT_CREATED_EVENTS_TOPIC,
+                productCreatedEvent.getProductId(),
+                productCreatedEvent
+        );
+        record.headers().add(MESSAGE_ID_HEADER, messageId.getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+}
@@ -1,9 +1,29 @@
 package com.ratnakar.kafka.service;
 
+import com.ratnakar.kafka.model.ProductBatchItemResult;
 import com.ratnakar.kafka.model.ProductRestModel;
 
-import java.util.concurrent.ExecutionException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface ProductService {
     String createProduct(ProductRestModel productRestModel) throws Exception;
+
+    // Non-blocking variant: returns as soon as the record is handed to the producer, the future completes on broker ack
+    CompletableFuture<String> createProductAsync(ProductRestModel productRestModel);
+
+    // Queues the record for TransactionalBatchPublisher, the future completes when the Kafka transaction holding it is committed
+    CompletableFuture<String> createProductTransactional(ProductRestModel productRestModel);
+
+    // Stores the product and its event in one DB transaction (transactional outbox), the event is published later by OutboxRelay
+    String createProductWithOutbox(ProductRestModel productRestModel);
+
+    // Publishes all products pipelined and waits for all the acks together, one result per product in request order
+    List<ProductBatchItemResult> createProducts(List<ProductRestModel> productRestModels);
+
+    // One item of a batch through the path of the publish mode, without waiting, the future completes with its productId
+    CompletableFuture<String> createBatchItem(ProductRestModel productRestModel);
+
+    // Waits for the futures of createBatchItem() together, one result per future with its position in the list as index
+    List<ProductBatchItemResult> awaitBatchItems(List<CompletableFuture<String>> productIdFutures);
 }
@@ -1,46 +1,68 @@
 package com.ratnakar.kafka.service;
 
+import com.ratnakar.kafka.metrics.PublishMetrics;
+import com.ratnakar.kafka.model.ProductBatchItemResult;
+import com.ratnakar.kafka.model.OutboxEventEntity;
 import com.ratnakar.kafka.model.ProductCreatedEvent;
+import com.ratnakar.kafka.model.ProductEntity;
 import com.ratnakar.kafka.model.ProductRestModel;
+import com.ratnakar.kafka.repository.OutboxEventRepository;
+import com.ratnakar.kafka.repository.ProductRepository;
+import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletionException;
 
 @Service
 @Slf4j
 public class ProductServiceImpl implements ProductService{
+    private static final String OUTBOX = "outbox";
 
     KafkaTemplate<String, ProductCreatedEvent> kafkaTemplate; // KafkaTemplate is a class from "org.springframework.kafka.core"
     // KafkaTemplate simplifies sending messages to Kafka topics. It handles serialization, producer configuration, and provides easy methods like send() to publish data asynchronously and reliably.
 
-    public ProductServiceImpl(KafkaTemplate<String, ProductCreatedEvent> kafkaTemplate) {
+    ProductRepository productRepository;
+    OutboxEventRepository outboxEventRepository;
+    // Times every send (serialize + buffer) and its broker ack, see PublishMetrics
+    PublishMetrics publishMetrics;
+    // Only present with app.product.publish-mode=transactional
+    TransactionalBatchPublisher transactionalBatchPublisher;
+    // Database transactions of the outbox batch path (createProductWithOutbox() uses @Transactional, a call from
+    // inside this class would bypass the proxy)
+    TransactionTemplate transactionTemplate;
+
+    @Value("${app.product.publish-mode:blocking}")
+    String publishMode;
+
+    public ProductServiceImpl(KafkaTemplate<String, ProductCreatedEvent> kafkaTemplate, ProductRepository productRepository,
+                              OutboxEventRepository outboxEventRepository, PublishMetrics publishMetrics,
+                              ObjectProvider<TransactionalBatchPublisher> transactionalBatchPublisher,
+                              PlatformTransactionManager transactionManager) {
         this.kafkaTemplate = kafkaTemplate;
+        this.productRepository = productRepository;
+        this.outboxEventRepository = outboxEventRepository;
+        this.publishMetrics = publishMetrics;
+        this.transactionalBatchPublisher = transactionalBatchPublisher.getIfAvailable();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Override
     public String createProduct(ProductRestModel productRestModel) throws Exception{
         String productId = UUID.randomUUID().toString(); // Java code for generating the random UUID for productId
-        // TO DO: Persist Product into database table before publishing an event
-        ProductCreatedEvent productCreatedEvent = new ProductCreatedEvent(
-                productId,
-                productRestModel.getTitle(),
-                productRestModel.getPrice(),
-                productRestModel.getQuantity()
-        );
-        // To include unique id into our kafka message header we will use the below code
-        ProducerRecord<String, ProductCreatedEvent> record = new ProducerRecord<>(
-                "product-created-event-topic",
-                productId,
-                productCreatedEvent
-        );
-        // Now we can add new headers inside our message
-        record.headers().add("messageId", UUID.randomUUID().toString().getBytes()); // This unique identifier is different from the productId
+        // This path publishes directly without storing the product, see createProductWithOutbox() for persisting it before publishing
+        ProducerRecord<String, ProductCreatedEvent> record = buildProductCreatedRecord(productId, productRestModel);
         // To test if messageId is getting stored in H2 db or not and to check if our DB is throwing an exception when it is receiving the same message again use below commented code
         // record.headers().add("messageId", "1234567890".getBytes()); // Here we are hard-coding the message ID as 1234567890
         /*
@@ -72,15 +94,8 @@ public class ProductServiceImpl implements ProductService{
         // 4) Timestamp: To measure the latency or throughput of the producer
         // Now we will pass the record object inside the send method
         SendResult<String, ProductCreatedEvent> result =
-                kafkaTemplate.send(record).get();
-        // Printing the Partition
-        log.info("Partition : "+ result.getRecordMetadata().partition());
-        // Printing the Topic
-        log.info("Topic : "+ result.getRecordMetadata().topic());
-        // Printing the Offset
-        log.info("Offset : "+ result.getRecordMetadata().offset());
-        // Printing the Timestamp
-        log.info("Timestamp : "+ result.getRecordMetadata().timestamp());
+                publishMetrics.timeSend("single", () -> kafkaTemplate.send(record)).get();
+        logRecordMetadata(result);
 
         /*
         // Sending data to insync-topic
@@ -100,4 +115,186 @@ public class ProductServiceImpl implements ProductService{
         log.info("**** Returning product id ****");
         return productId;
     }
+
+    /*
+    Asynchronous publish path: kafkaTemplate.send(record) only appends the record to the producer buffer and returns immediately,
+    the returned future is completed by the producer's network (sender) thread once the broker acknowledges the write (acks=all).
+    The calling Tomcat thread is NOT held for the broker round trip, so it goes back to the pool straight away.
+    Note: send() can still block for up to max.block.ms when the topic metadata is not yet known or the buffer memory is full.
+    */
+    @Override
+    public CompletableFuture<String> createProductAsync(ProductRestModel productRestModel) {
+        String productId = UUID.randomUUID().toString();
+        try {
+            ProducerRecord<String, ProductCreatedEvent> record = buildProductCreatedRecord(productId, productRestModel);
+            return publishMetrics.timeSend("single", () -> kafkaTemplate.send(record)).thenApply(result -> {
+                logRecordMetadata(result);
+                return productId;
+            });
+        } catch (Exception e) {
+            // Exceptions thrown synchronously by send() (serialization, buffer exhausted, no transaction...) are reported through the future
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /*
+    Transaction batching path (app.product.publish-mode=transactional)
+    The record is queued and published together with the records of other concurrent requests in one Kafka transaction,
+    the future (and so the HTTP response) completes once that transaction is committed, see TransactionalBatchPublisher.
+    */
+    @Override
+    public CompletableFuture<String> createProductTransactional(ProductRestModel productRestModel) {
+        if (transactionalBatchPublisher == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Transactional publishing needs app.product.publish-mode=transactional"));
+        }
+        String productId = UUID.randomUUID().toString();
+        return transactionalBatchPublisher.publish(buildProductCreatedRecord(productId, productRestModel)).thenApply(result -> {
+            logRecordMetadata(result);
+            return productId;
+        });
+    }
+
+    /*
+    Bulk publish path used by POST /products/batch
+    1) Every record is built and handed to kafkaTemplate.send() without waiting, so the producer can pack many records
+       into the same partition batch and keep up to max.in.flight.requests.per.connection requests on the wire.
+    2) Only after the whole batch is buffered we wait for all the acks together, instead of one broker round trip per product.
+    A failure of one record does not stop the others, each item reports its own productId or error.
+    With app.product.publish-mode=transactional the records go through TransactionalBatchPublisher instead and are
+    committed in transactions of up to app.product.transaction.max-records records.
+    With app.product.publish-mode=outbox all products and their outbox rows are stored in ONE database transaction
+    (one commit for the whole batch, either all items are stored or none), OutboxRelay publishes them.
+    */
+    @Override
+    public List<ProductBatchItemResult> createProducts(List<ProductRestModel> productRestModels) {
+        if (OUTBOX.equalsIgnoreCase(publishMode)) {
+            return createProductsWithOutbox(productRestModels);
+        }
+        List<CompletableFuture<String>> productIdFutures = new ArrayList<>(productRestModels.size());
+        for (ProductRestModel productRestModel : productRestModels) {
+            productIdFutures.add(createBatchItem(productRestModel));
+        }
+        return awaitBatchItems(productIdFutures);
+    }
+
+    /*
+    One batch item, used by createProducts() and by the NDJSON upload that hands over every line as soon as it is read.
+    outbox: stored with its outbox row in its own database transaction, the future is already complete
+    transactional: queued for TransactionalBatchPublisher
+    otherwise: kafkaTemplate.send(), the future completes on broker ack
+    */
+    @Override
+    public CompletableFuture<String> createBatchItem(ProductRestModel productRestModel) {
+        try {
+            if (OUTBOX.equalsIgnoreCase(publishMode)) {
+                return CompletableFuture.completedFuture(transactionTemplate.execute(status -> storeWithOutbox(productRestModel)));
+            }
+            String productId = UUID.randomUUID().toString();
+            ProducerRecord<String, ProductCreatedEvent> record = buildProductCreatedRecord(productId, productRestModel);
+            CompletableFuture<SendResult<String, ProductCreatedEvent>> future = transactionalBatchPublisher != null
+                    ? transactionalBatchPublisher.publish(record)
+                    : publishMetrics.timeSend("batch", () -> kafkaTemplate.send(record));
+            return future.thenApply(result -> productId);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public List<ProductBatchItemResult> awaitBatchItems(List<CompletableFuture<String>> productIdFutures) {
+        // Wait for every ack (or failure) at once, the individual outcomes are read below
+        CompletableFuture.allOf(productIdFutures.toArray(new CompletableFuture[0])).handle((ignored, ex) -> null).join();
+
+        List<ProductBatchItemResult> results = new ArrayList<>(productIdFutures.size());
+        int failed = 0;
+        for (int i = 0; i < productIdFutures.size(); i++) {
+            try {
+                results.add(new ProductBatchItemResult(i, productIdFutures.get(i).join(), null));
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                results.add(new ProductBatchItemResult(i, null, cause.getMessage()));
+                failed++;
+            }
+        }
+        log.info("Published product batch of {} records, {} failed", results.size(), failed);
+        return results;
+    }
+
+    private List<ProductBatchItemResult> createProductsWithOutbox(List<ProductRestModel> productRestModels) {
+        List<ProductBatchItemResult> results = new ArrayList<>(productRestModels.size());
+        try {
+            List<String> productIds = transactionTemplate.execute(status -> {
+                List<String> ids = new ArrayList<>(productRestModels.size());
+                for (ProductRestModel productRestModel : productRestModels) {
+                    ids.add(storeWithOutbox(productRestModel));
+                }
+                return ids;
+            });
+            for (int i = 0; i < productIds.size(); i++) {
+                results.add(new ProductBatchItemResult(i, productIds.get(i), null));
+            }
+            log.info("Stored product batch of {} records in the outbox", productIds.size());
+        } catch (Exception e) {
+            // The transaction is rolled back, none of the items is stored
+            log.error("Storing product batch of {} records in the outbox failed", productRestModels.size(), e);
+            for (int i = 0; i < productRestModels.size(); i++) {
+                results.add(new ProductBatchItemResult(i, null, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    /*
+    Transactional outbox path (app.product.publish-mode=outbox)
+    The product row and the outbox row are written in ONE local database transaction and the productId is returned right away,
+    the HTTP request never waits for (or fails because of) Kafka. OutboxRelay publishes the outbox rows in the background.
+    Either both rows are committed or none, so an event can never be lost or published for a product that was not stored.
+    */
+    @Override
+    @Transactional
+    public String createProductWithOutbox(ProductRestModel productRestModel) {
+        return storeWithOutbox(productRestModel);
+    }
+
+    // Product row and outbox row, written in the caller's database transaction
+    private String storeWithOutbox(ProductRestModel productRestModel) {
+        String productId = UUID.randomUUID().toString();
+        productRepository.save(new ProductEntity(
+                productId,
+                productRestModel.getTitle(),
+                productRestModel.getPrice(),
+                productRestModel.getQuantity()
+        ));
+        outboxEventRepository.save(new OutboxEventEntity(
+                productId,
+                UUID.randomUUID().toString(),
+                productRestModel.getTitle(),
+                productRestModel.getPrice(),
+                productRestModel.getQuantity()
+        ));
+        return productId;
+    }
+
+    private ProducerRecord<String, ProductCreatedEvent> buildProductCreatedRecord(String productId, ProductRestModel productRestModel) {
+        ProductCreatedEvent productCreatedEvent = new ProductCreatedEvent(
+                productId,
+                productRestModel.getTitle(),
+                productRestModel.getPrice(),
+                productRestModel.getQuantity()
+        );
+        // To include unique id into our kafka message header we will use the below code
+        // Now we can add new headers inside our message, the messageId unique identifier is different from the productId
+        ProducerRecord<String, ProductCreatedEvent> record =
+                ProductEventRecords.productCreatedRecord(productCreatedEvent, UUID.randomUUID().toString());
+        return record;
+    }
+
+    private void logRecordMetadata(SendResult<String, ProductCreatedEvent> result) {
+        // Printing the Partition, Topic, Offset and Timestamp of the acknowledged record
+        log.info("Partition : {}, Topic : {}, Offset : {}, Timestamp : {}",
+                result.getRecordMetadata().partition(),
+                result.getRecordMetadata().topic(),
+                result.getRecordMetadata().offset(),
+                result.getRecordMetadata().timestamp());
+    }
 }
@@ -0,0 +1,193 @@
+package com.ratnakar.kafka.service;
+
+import com.ratnakar.kafka.metrics.PublishMetrics;
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+Transaction batching (app.product.publish-mode=transactional).
+A Kafka transaction costs a begin, an AddPartitionsToTxn request, a commit and a commit marker written to every
+partition it touched, so one transaction per record is paid almost entirely in commit overhead. Here the records of
+many concurrent createProduct calls (and of /products/batch) are queued and published by one publisher thread:
+1) it takes the first queued record and keeps collecting until max-records are collected or max-wait has passed
+2) it sends them all inside ONE KafkaTemplate.executeInTransaction() and commits
+3) only after the commit every caller's future is completed with its SendResult
+A transaction is all or nothing: if any record of the group fails, the transaction is aborted and every caller of the
+group gets the failure. The consumers read with isolation.level=read_committed, so they never see aborted records.
+A single publisher thread keeps the order of the records as they were queued.
+*/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.product.publish-mode", havingValue = "transactional")
+public class TransactionalBatchPublisher {
+    private KafkaTemplate<String, ProductCreatedEvent> kafkaTemplate;
+    private PublishMetrics publishMetrics;
+    private MeterRegistry meterRegistry;
+
+    // A transaction is committed when it holds this many records...
+    @Value("${app.product.transaction.max-records:500}")
+    private int maxRecords;
+    // ...or when this time has passed since its first record was taken from the queue
+    @Value("${app.product.transaction.max-wait:PT0.01S}")
+    private Duration maxWait;
+    // Records waiting for a transaction, publish() fails fast when the queue is full
+    @Value("${app.product.transaction.queue-capacity:20000}")
+    private int queueCapacity;
+
+    private BlockingQueue<PendingSend> queue;
+    private Thread publisherThread;
+    private volatile boolean running;
+    // publish() checks running and queues under the read lock, stop() clears running under the write lock:
+    // once stop() holds it no record can be queued anymore, so the publisher thread's final drain sees all of them
+    private final ReadWriteLock runningLock = new ReentrantReadWriteLock();
+    private Timer transactionTimer;
+    private DistributionSummary recordsPerTransaction;
+
+    public TransactionalBatchPublisher(KafkaTemplate<String, ProductCreatedEvent> kafkaTemplate, PublishMetrics publishMetrics,
+                                       MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.publishMetrics = publishMetrics;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        transactionTimer = Timer.builder("product.publish.transaction").register(meterRegistry);
+        recordsPerTransaction = DistributionSummary.builder("product.publish.transaction.records").register(meterRegistry);
+        running = true;
+        publisherThread = new Thread(this::run, "kafka-transaction-publisher");
+        publisherThread.start();
+    }
+
+    // Publishes what is still queued, then stops the publisher thread
+    @PreDestroy
+    void stop() throws InterruptedException {
+        runningLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            runningLock.writeLock().unlock();
+        }
+        publisherThread.join(TimeUnit.SECONDS.toMillis(30));
+        // Left over when the thread did not finish in time or was interrupted, their callers must not wait forever
+        failQueued();
+    }
+
+    // The returned future completes when the transaction containing the record is committed
+    public CompletableFuture<SendResult<String, ProductCreatedEvent>> publish(ProducerRecord<String, ProductCreatedEvent> record) {
+        PendingSend pendingSend = new PendingSend(record);
+        runningLock.readLock().lock();
+        try {
+            if (!running) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Transactional publisher is stopped"));
+            }
+            if (!queue.offer(pendingSend)) {
+                return CompletableFuture.failedFuture(new IllegalStateException(
+                        "Transactional publisher queue is full (" + queueCapacity + " records)"));
+            }
+        } finally {
+            runningLock.readLock().unlock();
+        }
+        return pendingSend.future;
+    }
+
+    private void run() {
+        List<PendingSend> group = new ArrayList<>(maxRecords);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingSend first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                long deadline = System.nanoTime() + maxWait.toNanos();
+                while (group.size() < maxRecords) {
+                    // Take what is already queued without waiting, then wait for more until the deadline
+                    if (queue.drainTo(group, maxRecords - group.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    PendingSend next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                commit(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                // commit() completes the futures itself, this only guards the thread against unexpected failures
+                log.error("Unexpected failure in the transactional publisher", e);
+                group.forEach(pendingSend -> pendingSend.future.completeExceptionally(e));
+            } finally {
+                group.clear();
+            }
+        }
+        failQueued();
+    }
+
+    private void failQueued() {
+        IllegalStateException stopped = new IllegalStateException("Transactional publisher is stopped");
+        PendingSend pendingSend;
+        while ((pendingSend = queue.poll()) != null) {
+            pendingSend.future.completeExceptionally(stopped);
+        }
+    }
+
+    private void commit(List<PendingSend> group) {
+        long start = System.nanoTime();
+        try {
+            // executeInTransaction() begins the transaction, commits when the callback returns (flushing every send)
+            // and aborts when the callback or the commit throws
+            List<CompletableFuture<SendResult<String, ProductCreatedEvent>>> sends = kafkaTemplate.executeInTransaction(operations -> {
+                List<CompletableFuture<SendResult<String, ProductCreatedEvent>>> futures = new ArrayList<>(group.size());
+                for (PendingSend pendingSend : group) {
+                    futures.add(publishMetrics.timeSend("transactional", () -> operations.send(pendingSend.record)));
+                }
+                return futures;
+            });
+            for (int i = 0; i < group.size(); i++) {
+                group.get(i).future.complete(sends.get(i).join());
+            }
+        } catch (Exception e) {
+            log.error("Kafka transaction with {} records failed: {}", group.size(), e.getMessage());
+            group.forEach(pendingSend -> pendingSend.future.completeExceptionally(e));
+        } finally {
+            transactionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            recordsPerTransaction.record(group.size());
+        }
+    }
+
+    private static final class PendingSend {
+        private final ProducerRecord<String, ProductCreatedEvent> record;
+        private final CompletableFuture<SendResult<String, ProductCreatedEvent>> future = new CompletableFuture<>();
+
+        private PendingSend(ProducerRecord<String, ProductCreatedEvent> record) {
+            this.record = record;
+        }
+    }
+}
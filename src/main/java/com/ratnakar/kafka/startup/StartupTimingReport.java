@@ -0,0 +1,82 @@
+package com.ratnakar.kafka.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/*
+Logs where the startup time went once the application is ready.
+Application.main() records the startup steps with BufferingApplicationStartup (also served by GET /actuator/startup).
+A step's duration includes its nested steps (creating a bean includes creating its dependencies), so the report
+uses the SELF time of every step = its duration minus the durations of its direct children:
+- the slowest steps, bean instantiations labelled with their bean name
+- the total self time per step type (bean instantiation, configuration class parsing, repository scanning...)
+The background warm-up (StartupWarmup) logs its own task durations when it is done.
+*/
+@Slf4j
+@Component
+public class StartupTimingReport implements ApplicationListener<ApplicationReadyEvent> {
+    @Value("${app.startup.report.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.startup.report.top:10}")
+    private int top;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        ApplicationStartup applicationStartup = event.getApplicationContext().getApplicationStartup();
+        if (!enabled || !(applicationStartup instanceof BufferingApplicationStartup bufferingApplicationStartup)) {
+            return;
+        }
+        List<StartupTimeline.TimelineEvent> events = bufferingApplicationStartup.getBufferedTimeline().getEvents();
+
+        Map<Long, Duration> childDurations = new HashMap<>();
+        for (StartupTimeline.TimelineEvent timelineEvent : events) {
+            Long parentId = timelineEvent.getStartupStep().getParentId();
+            if (parentId != null) {
+                childDurations.merge(parentId, timelineEvent.getDuration(), Duration::plus);
+            }
+        }
+        Map<String, Duration> selfTimes = new HashMap<>();
+        Map<String, Duration> selfTimesByStep = new HashMap<>();
+        for (StartupTimeline.TimelineEvent timelineEvent : events) {
+            StartupStep step = timelineEvent.getStartupStep();
+            Duration selfTime = timelineEvent.getDuration().minus(childDurations.getOrDefault(step.getId(), Duration.ZERO));
+            selfTimes.merge(label(step), selfTime, Duration::plus);
+            selfTimesByStep.merge(step.getName(), selfTime, Duration::plus);
+        }
+
+        log.info("Started in {} ms ({} recorded steps). Slowest steps (self time): {}. By step type: {}",
+                event.getTimeTaken().toMillis(), events.size(), slowest(selfTimes), slowest(selfTimesByStep));
+    }
+
+    private String slowest(Map<String, Duration> durations) {
+        return durations.entrySet().stream()
+                .sorted(Map.Entry.<String, Duration>comparingByValue(Comparator.reverseOrder()))
+                .limit(top)
+                .map(entry -> entry.getKey() + "=" + entry.getValue().toMillis() + "ms")
+                .collect(Collectors.joining(", "));
+    }
+
+    private static String label(StartupStep step) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if (tag.getKey().equals("beanName")) {
+                return step.getName() + "[" + tag.getValue() + "]";
+            }
+        }
+        return step.getName();
+    }
+}
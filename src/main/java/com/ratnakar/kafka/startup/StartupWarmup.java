@@ -0,0 +1,153 @@
+package com.ratnakar.kafka.startup;
+
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import com.ratnakar.kafka.provisioning.TopicProvisioner;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/*
+Warms up the infrastructure in the background once the context is refreshed, instead of on the startup path:
+- kafka-topics    : creates / verifies the NewTopic beans with KafkaAdmin.initialize() and reconciles the declared
+                    topics with TopicProvisioner (app.startup.warmup.verify-topics, set by the fast-startup profile,
+                    which turns spring.kafka.admin.auto-create off)
+- jpa             : waits for the EntityManagerFactory; with spring.data.jpa.repositories.bootstrap-mode=deferred
+                    Hibernate bootstraps on the applicationTaskExecutor while the other beans are created
+- kafka-producer  : creates the shared producer (producers are only created on first use) and loads the metadata of
+                    the product topic, so the first request does not pay for the connection, metadata and init
+Each task is retried every retry-interval until it succeeds (e.g. broker not reachable yet).
+WarmupHealthIndicator reports DOWN until all tasks are done; it is part of the readiness health group,
+so Kubernetes only routes traffic to the pod once it is warm.
+
+Started as the first SmartLifecycle bean, so nothing runs during a CDS training run (-Dspring.context.exit=onRefresh
+halts the JVM before the lifecycle beans are started) or during AOT processing.
+*/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.startup.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class StartupWarmup implements SmartLifecycle {
+    private KafkaAdmin kafkaAdmin;
+    private TopicProvisioner topicProvisioner;
+    private KafkaTemplate<String, ProductCreatedEvent> kafkaTemplate;
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${app.startup.warmup.verify-topics:false}")
+    private boolean verifyTopics;
+
+    @Value("${app.startup.warmup.topic:product-created-events-topic}")
+    private String topic;
+
+    @Value("${app.startup.warmup.retry-interval:PT5S}")
+    private Duration retryInterval;
+
+    // Task name -> duration in ms, in completion order
+    private final Map<String, Long> completedTasks = new LinkedHashMap<>();
+    private volatile CompletableFuture<Void> warm;
+    private volatile boolean running;
+
+    public StartupWarmup(KafkaAdmin kafkaAdmin, ObjectProvider<TopicProvisioner> topicProvisioner,
+                         KafkaTemplate<String, ProductCreatedEvent> kafkaTemplate, EntityManagerFactory entityManagerFactory) {
+        this.kafkaAdmin = kafkaAdmin;
+        // Absent with app.topics.provisioning.enabled=false
+        this.topicProvisioner = topicProvisioner.getIfAvailable();
+        this.kafkaTemplate = kafkaTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("startup-warmup-");
+        long start = System.nanoTime();
+
+        CompletableFuture<Void> topics = verifyTopics
+                ? CompletableFuture.runAsync(() -> runUntilDone("kafka-topics", this::createTopics), executor)
+                : CompletableFuture.completedFuture(null);
+        CompletableFuture<Void> jpa = CompletableFuture.runAsync(
+                () -> runUntilDone("jpa", () -> entityManagerFactory.getMetamodel()), executor);
+        // The producer looks up the topic, so it waits for the topic check
+        CompletableFuture<Void> producer = topics.thenRunAsync(
+                () -> runUntilDone("kafka-producer", () -> kafkaTemplate.partitionsFor(topic)), executor);
+
+        warm = CompletableFuture.allOf(topics, jpa, producer).whenComplete((result, ex) -> {
+            if (ex == null) {
+                log.info("Warm-up done in {} ms (JVM uptime {} ms), task durations in ms: {}",
+                        (System.nanoTime() - start) / 1_000_000, ManagementFactory.getRuntimeMXBean().getUptime(), tasks());
+            }
+        });
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Before every other lifecycle bean (web server, listener containers), so the tasks overlap with their startup
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE;
+    }
+
+    public boolean isWarm() {
+        CompletableFuture<Void> future = warm;
+        return future != null && future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    public synchronized Map<String, Long> tasks() {
+        return new LinkedHashMap<>(completedTasks);
+    }
+
+    private void createTopics() {
+        if (topicProvisioner != null) {
+            // Throws when the broker is not reachable
+            topicProvisioner.reconcile();
+            // Remaining NewTopic beans, if any (false also when there are none)
+            kafkaAdmin.initialize();
+            return;
+        }
+        // false: the broker was not reachable within the admin operation timeout
+        if (!kafkaAdmin.initialize()) {
+            throw new IllegalStateException("Topics could not be verified, broker not available");
+        }
+    }
+
+    private void runUntilDone(String name, Runnable task) {
+        long start = System.nanoTime();
+        while (running) {
+            try {
+                task.run();
+                synchronized (this) {
+                    completedTasks.put(name, (System.nanoTime() - start) / 1_000_000);
+                }
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Startup warm-up task {} failed, retrying in {}: {}", name, retryInterval, e.toString());
+                try {
+                    Thread.sleep(retryInterval.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        throw new IllegalStateException("Startup warm-up task " + name + " cancelled");
+    }
+}
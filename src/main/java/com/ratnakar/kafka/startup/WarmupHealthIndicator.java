@@ -0,0 +1,26 @@
+package com.ratnakar.kafka.startup;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+// "warmup" health component, DOWN until StartupWarmup is done. Included in the readiness group (/actuator/health/readiness)
+@Component
+public class WarmupHealthIndicator implements HealthIndicator {
+    private StartupWarmup startupWarmup;
+
+    public WarmupHealthIndicator(ObjectProvider<StartupWarmup> startupWarmup) {
+        // Absent with app.startup.warmup.enabled=false: nothing to wait for
+        this.startupWarmup = startupWarmup.getIfAvailable();
+    }
+
+    @Override
+    public Health health() {
+        if (startupWarmup == null) {
+            return Health.up().build();
+        }
+        Health.Builder builder = startupWarmup.isWarm() ? Health.up() : Health.down();
+        return builder.withDetail("completedTasksMillis", startupWarmup.tasks()).build();
+    }
+}
@@ -0,0 +1,247 @@
+package com.ratnakar.kafka.tuning;
+
+import com.ratnakar.kafka.metrics.PollProcessingMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/*
+Adaptive consumer fetch / poll sizing (app.consumer.tuning.profile=adaptive).
+Every interval it takes the polls finished since the previous run (PollProcessingMetrics) and the consumer lag
+(kafka.consumer.fetch.manager.records.lag.max: lag of the partition furthest behind, summed over the consumers;
+registered with the consumer, the per-partition records.lag gauges only show up after a metrics refresh):
+- poll budget   = poll-budget x max.poll.interval.ms, the processing time one poll may take
+- record time   = processing time / records of the interval (downstream call, lookups, error handler back offs)
+- ceiling       = budget / record time, the largest max.poll.records that still fits the budget
+Then, in this order:
+1) the longest poll went over the budget, or max.poll.records is above the ceiling -> shrink at once (no cooldown):
+   a poll running over max.poll.interval.ms makes the consumer leave the group and its records are redelivered
+2) lag >= lag-high (falling behind) -> grow max.poll.records to the ceiling and size the fetches for it:
+   max.partition.fetch.bytes and fetch.min.bytes ~ max.poll.records x average record size (next power of two,
+   capped by the limits), fetch.max.wait.ms of HIGH_THROUGHPUT; only when it grows by at least grow-step
+3) lag <= lag-low for step-down-after intervals (caught up) -> fetch.min.bytes / fetch.max.wait.ms back to
+   LOW_LATENCY, so a record is fetched as soon as it arrives again; max.poll.records stays (it only bounds a poll)
+Growing and stepping down wait for the cooldown after the previous change.
+
+The consumer reads its settings only when it is created: a change updates the configs of the consumer factory and
+restarts the listener containers one at a time, the next one once the previous one is running again. A container
+finishes the records of its current poll before it stops and PartitionHandoverListener commits the positions, nothing
+is processed twice. With static membership (app.consumer.rebalance.group-instance-id) the restarted consumers rejoin
+without a rebalance. Without it every restart is a rebalance (cooperative: only among the restarted container's
+partitions), which is logged as a warning at startup: one at a time keeps the other containers consuming meanwhile.
+Paused containers (downstream circuit breaker open) are not restarted, the change waits for the next interval,
+so does a change while the previous restarts are still going on.
+*/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.consumer.tuning.profile", havingValue = ConsumerTuningProfile.ADAPTIVE)
+public class AdaptiveConsumerTuner {
+    private static final String RECORDS_LAG_MAX = "kafka.consumer.fetch.manager.records.lag.max";
+
+    private ConsumerFactory<String, Object> consumerFactory;
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+    private PollProcessingMetrics pollProcessingMetrics;
+    private MeterRegistry meterRegistry;
+
+    // Empty: dynamic membership, every consumer restart makes the group rebalance
+    @Value("${app.consumer.rebalance.group-instance-id:}")
+    private String groupInstanceId;
+    @Value("${app.consumer.tuning.max-poll-interval:PT5M}")
+    private Duration maxPollInterval;
+    @Value("${app.consumer.tuning.adaptive.poll-budget:0.5}")
+    private double pollBudget;
+    @Value("${app.consumer.tuning.adaptive.lag-high:1000}")
+    private long lagHigh;
+    @Value("${app.consumer.tuning.adaptive.lag-low:100}")
+    private long lagLow;
+    @Value("${app.consumer.tuning.adaptive.step-down-after:3}")
+    private int stepDownAfter;
+    @Value("${app.consumer.tuning.adaptive.grow-step:1.5}")
+    private double growStep;
+    @Value("${app.consumer.tuning.adaptive.cooldown:PT2M}")
+    private Duration cooldown;
+    @Value("${app.consumer.tuning.adaptive.min-poll-records:10}")
+    private int minPollRecords;
+    @Value("${app.consumer.tuning.adaptive.max-poll-records:2000}")
+    private int maxPollRecordsLimit;
+    @Value("${app.consumer.tuning.adaptive.max-fetch-min-bytes:1MB}")
+    private DataSize fetchMinBytesLimit;
+    @Value("${app.consumer.tuning.adaptive.max-partition-fetch-bytes:16MB}")
+    private DataSize partitionFetchBytesLimit;
+
+    private volatile ConsumerFetchSettings currentSettings = ConsumerTuningProfile.fromProperty(ConsumerTuningProfile.ADAPTIVE).getSettings();
+    private volatile double lastPollBudgetUsed;
+    private volatile long lastLag;
+    // Set while the containers of a change are restarted one after the other
+    private volatile boolean restarting;
+    // Estimates of the previous intervals, kept while no record is processed
+    private double recordNanos;
+    private double recordBytes = 1024;
+    private long lastChange = System.nanoTime();
+    private int caughtUpIntervals;
+
+    public AdaptiveConsumerTuner(ConsumerFactory<String, Object> consumerFactory,
+                                 KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry,
+                                 PollProcessingMetrics pollProcessingMetrics, MeterRegistry meterRegistry) {
+        this.consumerFactory = consumerFactory;
+        this.kafkaListenerEndpointRegistry = kafkaListenerEndpointRegistry;
+        this.pollProcessingMetrics = pollProcessingMetrics;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void registerMeters() {
+        Gauge.builder("consumer.tuning.max.poll.records", this, tuner -> tuner.currentSettings.getMaxPollRecords()).register(meterRegistry);
+        Gauge.builder("consumer.tuning.fetch.min.bytes", this, tuner -> tuner.currentSettings.getFetchMinBytes()).register(meterRegistry);
+        Gauge.builder("consumer.tuning.max.partition.fetch.bytes", this, tuner -> tuner.currentSettings.getMaxPartitionFetchBytes()).register(meterRegistry);
+        Gauge.builder("consumer.tuning.poll.budget.used", this, tuner -> tuner.lastPollBudgetUsed)
+                .description("Longest poll of the last interval / max.poll.interval.ms")
+                .register(meterRegistry);
+        if (!StringUtils.hasText(groupInstanceId)) {
+            log.warn("Adaptive consumer tuning without static membership (app.consumer.rebalance.group-instance-id is empty): "
+                    + "every retune restarts the listener containers and each restart rebalances the consumer group");
+        }
+    }
+
+    @Scheduled(fixedRateString = "${app.consumer.tuning.adaptive.interval:PT30S}",
+            initialDelayString = "${app.consumer.tuning.adaptive.interval:PT30S}")
+    public void evaluate() {
+        PollProcessingMetrics.Window window = pollProcessingMetrics.takeWindow();
+        if (window.getRecords() > 0) {
+            recordNanos = (double) window.getTotalNanos() / window.getRecords();
+            recordBytes = Math.max(1, (double) window.getBytes() / window.getRecords());
+        }
+        long budgetNanos = (long) (maxPollInterval.toNanos() * pollBudget);
+        lastPollBudgetUsed = (double) window.getMaxNanos() / maxPollInterval.toNanos();
+        lastLag = lag();
+        caughtUpIntervals = lastLag <= lagLow ? caughtUpIntervals + 1 : 0;
+        if (recordNanos == 0) {
+            // Nothing processed yet, nothing to size from
+            return;
+        }
+
+        int ceiling = clamp((long) (budgetNanos / recordNanos), minPollRecords, maxPollRecordsLimit);
+        ConsumerFetchSettings current = currentSettings;
+        if (window.getMaxNanos() > budgetNanos || current.getMaxPollRecords() > ceiling) {
+            // Scale the poll down to what fits the budget, by the longest poll as well: one slow poll (retries,
+            // a slow downstream call) is the one that runs into max.poll.interval.ms
+            long fitsLongestPoll = window.getMaxNanos() > budgetNanos
+                    ? current.getMaxPollRecords() * budgetNanos / window.getMaxNanos() : Long.MAX_VALUE;
+            int target = clamp(Math.min(ceiling, fitsLongestPoll), minPollRecords, maxPollRecordsLimit);
+            if (target < current.getMaxPollRecords()) {
+                apply(sized(target, isThroughputFetch(current)), String.format(
+                        "longest poll %d ms, %.1f ms per record, poll budget %d ms",
+                        window.getMaxNanos() / 1_000_000, recordNanos / 1_000_000, budgetNanos / 1_000_000));
+                return;
+            }
+        }
+        if (System.nanoTime() - lastChange < cooldown.toNanos()) {
+            return;
+        }
+        if (lastLag >= lagHigh && (ceiling >= current.getMaxPollRecords() * growStep || !isThroughputFetch(current))) {
+            apply(sized(Math.max(ceiling, current.getMaxPollRecords()), true), String.format(
+                    "lag %d records, %.1f ms per record, poll budget %d ms", lastLag, recordNanos / 1_000_000, budgetNanos / 1_000_000));
+        } else if (caughtUpIntervals >= stepDownAfter && isThroughputFetch(current)) {
+            apply(sized(current.getMaxPollRecords(), false), "lag " + lastLag + " records, caught up");
+        }
+    }
+
+    public ConsumerFetchSettings getCurrentSettings() {
+        return currentSettings;
+    }
+
+    // Fetch sizes for maxPollRecords records of the average size, throughput: the broker gathers a full poll per fetch
+    private ConsumerFetchSettings sized(int maxPollRecords, boolean throughput) {
+        ConsumerFetchSettings lowLatency = ConsumerTuningProfile.LOW_LATENCY.getSettings();
+        ConsumerFetchSettings highThroughput = ConsumerTuningProfile.HIGH_THROUGHPUT.getSettings();
+        long pollBytes = nextPowerOfTwo((long) (maxPollRecords * recordBytes));
+        int maxPartitionFetchBytes = clamp(pollBytes, lowLatency.getMaxPartitionFetchBytes(), partitionFetchBytesLimit.toBytes());
+        if (!throughput) {
+            return new ConsumerFetchSettings(maxPollRecords, lowLatency.getFetchMinBytes(), lowLatency.getFetchMaxWaitMs(), maxPartitionFetchBytes);
+        }
+        return new ConsumerFetchSettings(maxPollRecords, clamp(pollBytes, 1, fetchMinBytesLimit.toBytes()),
+                highThroughput.getFetchMaxWaitMs(), maxPartitionFetchBytes);
+    }
+
+    private boolean isThroughputFetch(ConsumerFetchSettings settings) {
+        return settings.getFetchMinBytes() > ConsumerTuningProfile.LOW_LATENCY.getSettings().getFetchMinBytes();
+    }
+
+    private void apply(ConsumerFetchSettings settings, String reason) {
+        if (settings.equals(currentSettings)) {
+            return;
+        }
+        if (kafkaListenerEndpointRegistry.getListenerContainers().stream().anyMatch(MessageListenerContainer::isPauseRequested)) {
+            log.info("Listener containers paused, consumer retuning ({}) postponed", settings);
+            return;
+        }
+        if (restarting) {
+            log.info("Listener containers still restarting, consumer retuning ({}) postponed", settings);
+            return;
+        }
+        log.info("Retuning consumers ({}): {} -> {}", reason, currentSettings, settings);
+        consumerFactory.updateConfigs(settings.consumerConfigs());
+        currentSettings = settings;
+        lastChange = System.nanoTime();
+        caughtUpIntervals = 0;
+        restarting = true;
+        restartNext(new ArrayList<>(kafkaListenerEndpointRegistry.getListenerContainers()).iterator());
+    }
+
+    // Restarts the next running container, the stop callback starts it again and then moves on to the one after it
+    private void restartNext(Iterator<MessageListenerContainer> containers) {
+        while (containers.hasNext()) {
+            MessageListenerContainer container = containers.next();
+            if (container.isRunning()) {
+                // New consumers, created with the updated configs, once the current poll is processed
+                container.stop(() -> {
+                    try {
+                        container.start();
+                    } finally {
+                        restartNext(containers);
+                    }
+                });
+                return;
+            }
+        }
+        restarting = false;
+    }
+
+    // Records the listener consumers are behind, consumer level gauges only (the others are per topic / partition),
+    // NaN until the consumer fetched
+    private long lag() {
+        double lag = 0;
+        for (Gauge gauge : meterRegistry.find(RECORDS_LAG_MAX).gauges()) {
+            if (gauge.getId().getTag("topic") != null) {
+                continue;
+            }
+            double value = gauge.value();
+            if (!Double.isNaN(value) && value > 0) {
+                lag += value;
+            }
+        }
+        return (long) lag;
+    }
+
+    private static long nextPowerOfTwo(long value) {
+        return value <= 1 ? 1 : Long.highestOneBit(value - 1) << 1;
+    }
+
+    private static int clamp(long value, long min, long max) {
+        return (int) Math.max(min, Math.min(max, value));
+    }
+}
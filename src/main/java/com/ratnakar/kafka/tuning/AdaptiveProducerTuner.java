@@ -0,0 +1,136 @@
+package com.ratnakar.kafka.tuning;
+
+import com.ratnakar.kafka.metrics.PublishMetrics;
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/*
+Adaptive producer batching (app.producer.tuning.profile=adaptive).
+Every interval the send rate (records/s, from the product.publish.send timers) picks a ProducerTuningProfile:
+- rate >= throughput-above          -> THROUGHPUT
+- rate >= balanced-above            -> BALANCED
+- otherwise                         -> LATENCY
+Moving up happens at once, so batches grow as soon as traffic climbs. Moving down one level only happens after
+step-down-after consecutive intervals below step-down-factor x the threshold of the current level, so a rate
+hovering around a threshold does not flip the configuration every interval.
+
+A change is applied with TunableProducerFactory.retune(): the next send gets a producer with the new
+linger.ms / batch.size / compression.type, the previous producer is closed retire-after later.
+*/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.producer.tuning.profile", havingValue = ProducerTuningProfile.ADAPTIVE)
+public class AdaptiveProducerTuner {
+    private TunableProducerFactory<String, ProductCreatedEvent> producerFactory;
+    private MeterRegistry meterRegistry;
+    private TaskScheduler taskScheduler;
+
+    @Value("${app.producer.tuning.adaptive.balanced-above:200}")
+    private double balancedAbove;
+    @Value("${app.producer.tuning.adaptive.throughput-above:2000}")
+    private double throughputAbove;
+    @Value("${app.producer.tuning.adaptive.step-down-factor:0.5}")
+    private double stepDownFactor;
+    @Value("${app.producer.tuning.adaptive.step-down-after:3}")
+    private int stepDownAfter;
+    // How long a replaced producer stays open for the sends that already picked it up
+    @Value("${app.producer.tuning.adaptive.retire-after:PT5S}")
+    private Duration retireAfter;
+
+    private volatile ProducerTuningProfile currentProfile = ProducerTuningProfile.fromProperty(ProducerTuningProfile.ADAPTIVE);
+    private long lastSendCount = -1;
+    private long lastEvaluation;
+    private int quietIntervals;
+
+    public AdaptiveProducerTuner(ProducerFactory<String, ProductCreatedEvent> producerFactory, MeterRegistry meterRegistry,
+                                 TaskScheduler taskScheduler) {
+        if (!(producerFactory instanceof TunableProducerFactory<String, ProductCreatedEvent> tunableProducerFactory)) {
+            throw new IllegalStateException("Adaptive producer tuning needs a TunableProducerFactory, got " + producerFactory.getClass().getName());
+        }
+        this.producerFactory = tunableProducerFactory;
+        this.meterRegistry = meterRegistry;
+        this.taskScheduler = taskScheduler;
+    }
+
+    @PostConstruct
+    void registerMeters() {
+        Gauge.builder("producer.tuning.profile", this, tuner -> tuner.currentProfile.ordinal())
+                .description("0 latency, 1 balanced, 2 throughput")
+                .register(meterRegistry);
+        Gauge.builder("producer.tuning.linger.ms", this, tuner -> tuner.currentProfile.getLingerMs()).register(meterRegistry);
+        Gauge.builder("producer.tuning.batch.size", this, tuner -> tuner.currentProfile.getBatchSize()).register(meterRegistry);
+    }
+
+    @Scheduled(fixedRateString = "${app.producer.tuning.adaptive.interval:PT10S}")
+    public void evaluate() {
+        long sendCount = sendCount();
+        long now = System.nanoTime();
+        if (lastSendCount < 0) {
+            lastSendCount = sendCount;
+            lastEvaluation = now;
+            return;
+        }
+        double sendRate = (sendCount - lastSendCount) / ((now - lastEvaluation) / 1_000_000_000.0);
+        lastSendCount = sendCount;
+        lastEvaluation = now;
+
+        ProducerTuningProfile target = profileFor(sendRate);
+        if (target.ordinal() > currentProfile.ordinal()) {
+            quietIntervals = 0;
+            apply(target, sendRate);
+        } else if (target.ordinal() < currentProfile.ordinal() && sendRate < threshold(currentProfile) * stepDownFactor) {
+            if (++quietIntervals >= stepDownAfter) {
+                quietIntervals = 0;
+                apply(ProducerTuningProfile.values()[currentProfile.ordinal() - 1], sendRate);
+            }
+        } else {
+            quietIntervals = 0;
+        }
+    }
+
+    public ProducerTuningProfile getCurrentProfile() {
+        return currentProfile;
+    }
+
+    private ProducerTuningProfile profileFor(double sendRate) {
+        if (sendRate >= throughputAbove) {
+            return ProducerTuningProfile.THROUGHPUT;
+        }
+        return sendRate >= balancedAbove ? ProducerTuningProfile.BALANCED : ProducerTuningProfile.LATENCY;
+    }
+
+    private double threshold(ProducerTuningProfile profile) {
+        return switch (profile) {
+            case THROUGHPUT -> throughputAbove;
+            case BALANCED -> balancedAbove;
+            case LATENCY -> 0;
+        };
+    }
+
+    private void apply(ProducerTuningProfile profile, double sendRate) {
+        log.info("Producer send rate {} records/s, switching tuning profile {} -> {} (linger.ms={}, batch.size={}, compression.type={})",
+                Math.round(sendRate), currentProfile, profile, profile.getLingerMs(), profile.getBatchSize(), profile.getCompressionType());
+        producerFactory.retune(profile.producerConfigs(), retireAfter, taskScheduler);
+        currentProfile = profile;
+    }
+
+    private long sendCount() {
+        long count = 0;
+        for (Timer timer : meterRegistry.find(PublishMetrics.SEND_TIMER).timers()) {
+            count += timer.count();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,68 @@
+package com.ratnakar.kafka.tuning;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+
+import java.util.Map;
+import java.util.Objects;
+
+// The fetch / poll settings of the listener consumers, set from a ConsumerTuningProfile or by AdaptiveConsumerTuner
+public class ConsumerFetchSettings {
+    private final int maxPollRecords;
+    private final int fetchMinBytes;
+    private final int fetchMaxWaitMs;
+    private final int maxPartitionFetchBytes;
+
+    public ConsumerFetchSettings(int maxPollRecords, int fetchMinBytes, int fetchMaxWaitMs, int maxPartitionFetchBytes) {
+        this.maxPollRecords = maxPollRecords;
+        this.fetchMinBytes = fetchMinBytes;
+        this.fetchMaxWaitMs = fetchMaxWaitMs;
+        this.maxPartitionFetchBytes = maxPartitionFetchBytes;
+    }
+
+    public Map<String, Object> consumerConfigs() {
+        return Map.of(
+                ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords,
+                ConsumerConfig.FETCH_MIN_BYTES_CONFIG, fetchMinBytes,
+                ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, fetchMaxWaitMs,
+                ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, maxPartitionFetchBytes
+        );
+    }
+
+    public int getMaxPollRecords() {
+        return maxPollRecords;
+    }
+
+    public int getFetchMinBytes() {
+        return fetchMinBytes;
+    }
+
+    public int getFetchMaxWaitMs() {
+        return fetchMaxWaitMs;
+    }
+
+    public int getMaxPartitionFetchBytes() {
+        return maxPartitionFetchBytes;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ConsumerFetchSettings settings
+                && maxPollRecords == settings.maxPollRecords
+                && fetchMinBytes == settings.fetchMinBytes
+                && fetchMaxWaitMs == settings.fetchMaxWaitMs
+                && maxPartitionFetchBytes == settings.maxPartitionFetchBytes;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxPollRecords, fetchMinBytes, fetchMaxWaitMs, maxPartitionFetchBytes);
+    }
+
+    @Override
+    public String toString() {
+        return "max.poll.records=" + maxPollRecords +
+                ", fetch.min.bytes=" + fetchMinBytes +
+                ", fetch.max.wait.ms=" + fetchMaxWaitMs +
+                ", max.partition.fetch.bytes=" + maxPartitionFetchBytes;
+    }
+}
@@ -0,0 +1,37 @@
+package com.ratnakar.kafka.tuning;
+
+/*
+Named consumer fetch / poll profiles, chosen with app.consumer.tuning.profile (KafkaConsumerConfig.consumerFactory).
+- LOW_LATENCY     : fetch.min.bytes=1, the broker answers a fetch as soon as one record is there (waits at most
+                    100 ms when there is none); up to 100 records per poll, 1 MB per partition and fetch.
+                    Every record is handed to the listener right away, at the cost of many small fetches under load.
+- HIGH_THROUGHPUT : the broker waits up to 500 ms to gather 256 KB per fetch; up to 1000 records per poll,
+                    4 MB per partition. Fewer, fuller fetches and polls, records may wait up to fetch.max.wait.ms.
+max.poll.records bounds the work of one poll: all of it has to be processed within max.poll.interval.ms,
+with the downstream call per record the high-throughput poll size only fits a fast downstream service.
+"adaptive" starts with LOW_LATENCY and lets AdaptiveConsumerTuner size the settings from lag and poll processing time.
+*/
+public enum ConsumerTuningProfile {
+    LOW_LATENCY(new ConsumerFetchSettings(100, 1, 100, 1_048_576)),
+    HIGH_THROUGHPUT(new ConsumerFetchSettings(1000, 262_144, 500, 4_194_304));
+
+    public static final String ADAPTIVE = "adaptive";
+
+    private final ConsumerFetchSettings settings;
+
+    ConsumerTuningProfile(ConsumerFetchSettings settings) {
+        this.settings = settings;
+    }
+
+    // Profile to start with for the value of app.consumer.tuning.profile (low-latency, high-throughput, adaptive)
+    public static ConsumerTuningProfile fromProperty(String profile) {
+        if (ADAPTIVE.equalsIgnoreCase(profile.trim())) {
+            return LOW_LATENCY;
+        }
+        return valueOf(profile.trim().replace('-', '_').toUpperCase());
+    }
+
+    public ConsumerFetchSettings getSettings() {
+        return settings;
+    }
+}
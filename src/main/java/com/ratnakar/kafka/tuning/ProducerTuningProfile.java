@@ -0,0 +1,60 @@
+package com.ratnakar.kafka.tuning;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.Map;
+
+/*
+Named producer batching profiles, chosen with app.producer.tuning.profile (KafkaProducerConfig.producerConfigs).
+- LATENCY    : linger.ms=0, one record is sent as soon as the sender thread is free, no compression.
+               Lowest latency at low traffic, but every product becomes a near-empty produce request.
+- BALANCED   : waits up to 5 ms to fill 64 KB batches, lz4 compression (cheap on CPU).
+- THROUGHPUT : waits up to 20 ms to fill 256 KB batches, zstd compression (best ratio, more CPU).
+A batch is sent as soon as it is full, linger.ms is only the upper bound of the wait when traffic is low.
+"adaptive" starts with LATENCY and lets AdaptiveProducerTuner move between the profiles by observed send rate.
+*/
+public enum ProducerTuningProfile {
+    LATENCY(0, 16_384, "none"),
+    BALANCED(5, 65_536, "lz4"),
+    THROUGHPUT(20, 262_144, "zstd");
+
+    public static final String ADAPTIVE = "adaptive";
+
+    private final int lingerMs;
+    private final int batchSize;
+    private final String compressionType;
+
+    ProducerTuningProfile(int lingerMs, int batchSize, String compressionType) {
+        this.lingerMs = lingerMs;
+        this.batchSize = batchSize;
+        this.compressionType = compressionType;
+    }
+
+    // Profile to start with for the value of app.producer.tuning.profile
+    public static ProducerTuningProfile fromProperty(String profile) {
+        if (ADAPTIVE.equalsIgnoreCase(profile)) {
+            return LATENCY;
+        }
+        return valueOf(profile.trim().toUpperCase());
+    }
+
+    public Map<String, Object> producerConfigs() {
+        return Map.of(
+                ProducerConfig.LINGER_MS_CONFIG, lingerMs,
+                ProducerConfig.BATCH_SIZE_CONFIG, batchSize,
+                ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType
+        );
+    }
+
+    public int getLingerMs() {
+        return lingerMs;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public String getCompressionType() {
+        return compressionType;
+    }
+}
@@ -0,0 +1,65 @@
+package com.ratnakar.kafka.tuning;
+
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/*
+DefaultKafkaProducerFactory whose batching settings can be changed while sends are in flight.
+
+updateConfigs() + reset() would close the shared producer immediately, and a send that picked it up a moment before
+fails with "Producer closed while send in progress". retune() instead:
+1) creates a new generation of this factory with the new settings, every following non-transactional send
+   (KafkaTemplate with allowNonTransactional) gets its producer from it
+2) closes the previous generation only after retireAfter, when the sends that already hold it are done;
+   close() still flushes whatever that producer has buffered
+Transactional producers (OutboxRelay) take the new settings from updateConfigs(); the cached idle ones are closed
+after retireAfter as well, a producer in use by a transaction is closed when the transaction returns it.
+*/
+public class TunableProducerFactory<K, V> extends DefaultKafkaProducerFactory<K, V> {
+    private volatile DefaultKafkaProducerFactory<K, V> currentGeneration;
+
+    public TunableProducerFactory(Map<String, Object> configs) {
+        super(configs);
+    }
+
+    public TunableProducerFactory(Map<String, Object> configs, Supplier<Serializer<K>> keySerializerSupplier,
+                                  Supplier<Serializer<V>> valueSerializerSupplier) {
+        super(configs, keySerializerSupplier, valueSerializerSupplier);
+    }
+
+    @Override
+    public Producer<K, V> createNonTransactionalProducer() {
+        DefaultKafkaProducerFactory<K, V> generation = currentGeneration;
+        return generation == null ? super.createNonTransactionalProducer() : generation.createNonTransactionalProducer();
+    }
+
+    public synchronized void retune(Map<String, Object> configs, Duration retireAfter, TaskScheduler taskScheduler) {
+        DefaultKafkaProducerFactory<K, V> previousGeneration = currentGeneration;
+        updateConfigs(configs);
+        currentGeneration = (DefaultKafkaProducerFactory<K, V>) copyWithConfigurationOverride(configs);
+        taskScheduler.schedule(() -> {
+            if (previousGeneration != null) {
+                previousGeneration.destroy();
+            }
+            // Shared producer of the first generation (if any) and the idle transactional producers,
+            // super.destroy() and not reset(): reset() would call the override below and close the current generation too
+            super.destroy();
+        }, Instant.now().plus(retireAfter));
+    }
+
+    @Override
+    public void destroy() {
+        DefaultKafkaProducerFactory<K, V> generation = currentGeneration;
+        if (generation != null) {
+            generation.destroy();
+        }
+        super.destroy();
+    }
+}
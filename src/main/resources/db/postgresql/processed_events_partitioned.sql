@@ -0,0 +1,45 @@
+-- processed_events range partitioned by day on processed_at, for app.idempotency.retention.strategy=drop-partitions.
+-- Purging a day is then a DROP TABLE of its partition instead of deleting (and vacuuming) millions of rows.
+--
+-- ProcessedEventsRetention creates the partitions of the next days ahead (app.idempotency.retention.partitions-ahead)
+-- and drops the ones past the horizon. Partition names must stay processed_events_pYYYYMMDD (UTC day).
+--
+-- Caveat: PostgreSQL only allows unique constraints that include the partition key, so message_id is unique per
+-- processed_at, not across the table. The idempotency check (lookup before insert) still finds every processed
+-- messageId, but two consumers inserting the same messageId at the same moment are no longer rejected by the database.
+-- Records with the same key stay on one partition and are processed by one consumer at a time, so this only
+-- matters around rebalances. A lookup by message_id probes the index of every partition (horizon in days + ahead).
+
+create sequence if not exists processed_events_seq start with 1 increment by 50;
+
+create table processed_events (
+    id           bigint                   not null,
+    message_id   varchar(255)             not null,
+    product_id   varchar(255)             not null,
+    processed_at timestamp(6) with time zone not null default now(),
+    primary key (id, processed_at),
+    unique (message_id, processed_at)
+) partition by range (processed_at);
+
+create index idx_processed_events_message_id on processed_events (message_id);
+create index idx_processed_events_processed_at on processed_events (processed_at);
+
+-- Catches rows outside the created partitions (clock skew, retention job stopped for days). Never dropped, keep it empty
+create table processed_events_default partition of processed_events default;
+
+-- Partitions of today and the next two days, the retention job keeps creating the next ones
+do $$
+declare
+    day date;
+begin
+    for i in 0..2 loop
+        day := (now() at time zone 'UTC')::date + i;
+        execute format('create table if not exists processed_events_p%s partition of processed_events '
+                       'for values from (%L) to (%L)',
+                       to_char(day, 'YYYYMMDD'), day::text || ' 00:00:00+00', (day + 1)::text || ' 00:00:00+00');
+    end loop;
+end $$;
+
+-- Migrating an existing, non partitioned table: add the column first, existing rows count as processed now
+-- alter table processed_events add column processed_at timestamp(6) with time zone not null default now();
+-- create index idx_processed_events_processed_at on processed_events (processed_at);
@@ -0,0 +1,124 @@
+package com.ratnakar.kafka.serialization;
+
+import com.ratnakar.kafka.model.ProductCreatedEvent;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+Round trips through the binary layout of ProductCreatedEventCodec, one test per flag / edge case of the layout.
+*/
+class ProductCreatedEventCodecTest {
+
+    @Test
+    void roundTripsTypicalEvent() {
+        ProductCreatedEvent event = new ProductCreatedEvent(UUID.randomUUID().toString(), "iPhone 15", new BigDecimal("999.99"), 5);
+
+        ProductCreatedEvent decoded = roundTrip(event);
+
+        assertSameEvent(event, decoded);
+        // 2 bytes header + 16 bytes UUID + 10 bytes title + 1 byte scale + 3 bytes price + 1 byte quantity
+        assertEquals(33, ProductCreatedEventCodec.encode(event).length);
+    }
+
+    @Test
+    void roundTripsAllFieldsNull() {
+        ProductCreatedEvent decoded = roundTrip(new ProductCreatedEvent());
+
+        assertNull(decoded.getProductId());
+        assertNull(decoded.getTitle());
+        assertNull(decoded.getPrice());
+        assertNull(decoded.getQuantity());
+    }
+
+    @Test
+    void keepsNonCanonicalUuidAsText() {
+        // UUID.toString() is lower case, so an upper case id must be stored as text to come back unchanged
+        String upperCaseId = UUID.randomUUID().toString().toUpperCase();
+        ProductCreatedEvent event = new ProductCreatedEvent(upperCaseId, "title", BigDecimal.ONE, 1);
+
+        assertEquals(upperCaseId, roundTrip(event).getProductId());
+    }
+
+    @Test
+    void roundTripsNonUuidProductIdAndEmptyTitle() {
+        ProductCreatedEvent event = new ProductCreatedEvent("sku-42 ü€", "", BigDecimal.ZERO, 0);
+
+        assertSameEvent(event, roundTrip(event));
+    }
+
+    @Test
+    void roundTripsUnscaledPriceLongerThan63Bits() {
+        BigInteger unscaled = BigInteger.ONE.shiftLeft(100).add(BigInteger.valueOf(12345));
+        ProductCreatedEvent event = new ProductCreatedEvent(UUID.randomUUID().toString(), "big", new BigDecimal(unscaled, 2), 1);
+
+        ProductCreatedEvent decoded = roundTrip(event);
+
+        assertEquals(event.getPrice(), decoded.getPrice());
+        assertEquals(2, decoded.getPrice().scale());
+    }
+
+    @Test
+    void roundTripsLongMinValueUnscaledPrice() {
+        // Exactly 63 bits, the largest magnitude still written as a varlong
+        BigDecimal price = new BigDecimal(BigInteger.valueOf(Long.MIN_VALUE), 4);
+        ProductCreatedEvent event = new ProductCreatedEvent("id", "min", price, 1);
+
+        assertEquals(price, roundTrip(event).getPrice());
+    }
+
+    @Test
+    void roundTripsNegativeQuantityAndNegativeScale() {
+        // 12E+3: unscaled 12, scale -3
+        BigDecimal price = new BigDecimal(BigInteger.valueOf(12), -3);
+        ProductCreatedEvent event = new ProductCreatedEvent(UUID.randomUUID().toString(), "negative", price.negate(), -7);
+
+        ProductCreatedEvent decoded = roundTrip(event);
+
+        assertEquals(-3, decoded.getPrice().scale());
+        assertEquals(price.negate(), decoded.getPrice());
+        assertEquals(-7, decoded.getQuantity());
+        assertEquals(Integer.MIN_VALUE, roundTrip(new ProductCreatedEvent("id", null, null, Integer.MIN_VALUE)).getQuantity());
+    }
+
+    @Test
+    void rejectsEveryTruncatedPayload() {
+        byte[] data = ProductCreatedEventCodec.encode(
+                new ProductCreatedEvent("sku-1", "title", new BigDecimal("19.90"), 3));
+
+        for (int length = 0; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThrows(SerializationException.class, () -> ProductCreatedEventCodec.decode(truncated),
+                    "payload truncated to " + length + " bytes");
+        }
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        byte[] data = ProductCreatedEventCodec.encode(new ProductCreatedEvent("sku-1", "title", BigDecimal.TEN, 1));
+        data[0] = ProductCreatedEventCodec.VERSION_1 + 1;
+
+        SerializationException e = assertThrows(SerializationException.class, () -> ProductCreatedEventCodec.decode(data));
+        assertTrue(e.getMessage().contains("version"));
+    }
+
+    private static ProductCreatedEvent roundTrip(ProductCreatedEvent event) {
+        return ProductCreatedEventCodec.decode(ProductCreatedEventCodec.encode(event));
+    }
+
+    private static void assertSameEvent(ProductCreatedEvent expected, ProductCreatedEvent actual) {
+        assertEquals(expected.getProductId(), actual.getProductId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getPrice(), actual.getPrice());
+        assertEquals(expected.getQuantity(), actual.getQuantity());
+    }
+}